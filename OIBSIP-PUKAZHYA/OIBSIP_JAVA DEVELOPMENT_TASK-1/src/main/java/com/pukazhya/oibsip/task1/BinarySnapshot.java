@@ -0,0 +1,296 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+/**
+ * BinarySnapshot.java
+ * Versioned, checksummed binary image of the in-memory reservation state
+ *
+ * Layout (big-endian):
+ *   header : magic "PZSN", version, size and mtime of the CSV base file it was
+ *            written together with
+ *   body   : sections written by the store and indexes (bulk primitive arrays,
+ *            length-prefixed UTF-8 strings)
+ *   trailer: body length and CRC32 of the body
+ *
+ * The snapshot is only trusted when the base file still has the recorded size
+ * and mtime and the checksum matches; otherwise callers fall back to the CSV.
+ * The checksum is verified over the whole body before any of it is parsed,
+ * and every length or count read from the body is checked against the bytes
+ * left in it ({@link In#readCount}), so a damaged file is rejected without
+ * building anything from it or making an allocation larger than the file.
+ * Reads and writes go through a 1 MB buffer, so columns move in bulk.
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x505A534E;   // "PZSN"
+    static final int VERSION = 3;   // 2: seat column, 3: departure index
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    private static final int TRAILER_BYTES = 8 + 8;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private BinarySnapshot() {}
+
+    // Writes the body section by section
+    interface BodyWriter {
+        void writeTo(Out out) throws IOException;
+    }
+
+    // Reads the body; returning normally means the sections parsed
+    interface BodyReader {
+        void readFrom(In in) throws IOException;
+    }
+
+    static Path pathFor(Path baseFile) {
+        return baseFile.resolveSibling(baseFile.getFileName() + ".snap");
+    }
+
+    // Write atomically (tmp + move); baseFile must already hold the matching CSV
+    static void write(Path snapshot, Path baseFile, BodyWriter body) throws IOException {
+        BasicFileAttributes base = Files.readAttributes(baseFile, BasicFileAttributes.class);
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(base.size()).putLong(base.lastModifiedTime().toMillis()).flip();
+            while (header.hasRemaining()) ch.write(header);
+
+            Out out = new Out(ch);
+            body.writeTo(out);
+            out.flush();
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            trailer.putLong(out.length).putLong(out.crc.getValue()).flip();
+            while (trailer.hasRemaining()) ch.write(trailer);
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read the snapshot if it is present, current and intact.
+     *
+     * @return false when the caller should fall back to the CSV; the reader may
+     *         then have seen partial data and its target must be reset.
+     */
+    static boolean read(Path snapshot, Path baseFile, BodyReader body) {
+        if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(baseFile)) return false;
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) return false;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(ch, header, 0);
+            header.flip();
+            BasicFileAttributes base = Files.readAttributes(baseFile, BasicFileAttributes.class);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return false;
+            if (header.getLong() != base.size() || header.getLong() != base.lastModifiedTime().toMillis()) return false;
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            readFully(ch, trailer, size - TRAILER_BYTES);
+            trailer.flip();
+            long bodyLength = trailer.getLong();
+            long crc = trailer.getLong();
+            if (bodyLength != size - HEADER_BYTES - TRAILER_BYTES) return false;
+            if (checksum(ch, bodyLength) != crc) return false;
+
+            ch.position(HEADER_BYTES);
+            body.readFrom(new In(ch, bodyLength));
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    // CRC32 of the body, read in buffer-sized blocks
+    private static long checksum(FileChannel ch, long bodyLength) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        CRC32 crc = new CRC32();
+        long pos = HEADER_BYTES, end = HEADER_BYTES + bodyLength;
+        while (pos < end) {
+            buf.clear().limit((int) Math.min(BUFFER_BYTES, end - pos));
+            int n = ch.read(buf, pos);
+            if (n < 0) throw new IOException("Unexpected end of snapshot body");
+            buf.flip();
+            crc.update(buf);
+            pos += n;
+        }
+        return crc.getValue();
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) throw new IOException("Unexpected end of snapshot");
+        }
+    }
+
+    /* ----------------------------
+       Buffered, checksummed body streams
+       ---------------------------- */
+
+    static final class Out {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        private long length;
+
+        private Out(FileChannel ch) { this.ch = ch; }
+
+        void writeInt(int v) throws IOException { room(4); buf.putInt(v); }
+        void writeLong(long v) throws IOException { room(8); buf.putLong(v); }
+
+        void writeString(String s) throws IOException {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(b.length);
+            writeBytes(b, b.length);
+        }
+
+        void writeInts(int[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                room(4);
+                int k = Math.min(n - i, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, i, k);
+                buf.position(buf.position() + k * 4);
+                i += k;
+            }
+        }
+
+        void writeChars(char[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                room(2);
+                int k = Math.min(n - i, buf.remaining() / 2);
+                buf.asCharBuffer().put(a, i, k);
+                buf.position(buf.position() + k * 2);
+                i += k;
+            }
+        }
+
+        void writeShorts(short[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                room(2);
+                int k = Math.min(n - i, buf.remaining() / 2);
+                buf.asShortBuffer().put(a, i, k);
+                buf.position(buf.position() + k * 2);
+                i += k;
+            }
+        }
+
+        void writeBytes(byte[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                room(1);
+                int k = Math.min(n - i, buf.remaining());
+                buf.put(a, i, k);
+                i += k;
+            }
+        }
+
+        private void room(int bytes) throws IOException {
+            if (buf.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            length += buf.remaining();
+            crc.update(buf.duplicate());
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+    }
+
+    static final class In {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private long remaining;   // body bytes not yet pulled into buf
+
+        private In(FileChannel ch, long bodyLength) {
+            this.ch = ch;
+            this.remaining = bodyLength;
+            buf.limit(0);
+        }
+
+        int readInt() throws IOException { need(4); return buf.getInt(); }
+        long readLong() throws IOException { need(8); return buf.getLong(); }
+
+        /**
+         * Read a length or count of items that follow, each taking at least
+         * bytesEach bytes of the body.
+         *
+         * @throws IOException if it is negative or more than the rest of the body can hold
+         */
+        int readCount(int bytesEach) throws IOException {
+            int n = readInt();
+            if (n < 0 || (long) n * bytesEach > remaining + buf.remaining()) {
+                throw new IOException("Corrupt snapshot: count " + n + " exceeds the body");
+            }
+            return n;
+        }
+
+        String readString() throws IOException {
+            int n = readCount(1);
+            byte[] b = new byte[n];
+            readBytes(b, n);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        void readInts(int[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                need(4);
+                int k = Math.min(n - i, buf.remaining() / 4);
+                buf.asIntBuffer().get(a, i, k);
+                buf.position(buf.position() + k * 4);
+                i += k;
+            }
+        }
+
+        void readChars(char[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                need(2);
+                int k = Math.min(n - i, buf.remaining() / 2);
+                buf.asCharBuffer().get(a, i, k);
+                buf.position(buf.position() + k * 2);
+                i += k;
+            }
+        }
+
+        void readShorts(short[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                need(2);
+                int k = Math.min(n - i, buf.remaining() / 2);
+                buf.asShortBuffer().get(a, i, k);
+                buf.position(buf.position() + k * 2);
+                i += k;
+            }
+        }
+
+        void readBytes(byte[] a, int n) throws IOException {
+            for (int i = 0; i < n; ) {
+                need(1);
+                int k = Math.min(n - i, buf.remaining());
+                buf.get(a, i, k);
+                i += k;
+            }
+        }
+
+        // Ensure at least `bytes` are buffered, refilling as needed
+        private void need(int bytes) throws IOException {
+            if (buf.remaining() >= bytes) return;
+            buf.compact();
+            while (buf.position() < bytes) {
+                if (remaining <= 0) throw new IOException("Unexpected end of snapshot body");
+                int start = buf.position();
+                buf.limit((int) Math.min(buf.capacity(), start + remaining));
+                int n = ch.read(buf);
+                if (n < 0) throw new IOException("Unexpected end of snapshot body");
+                remaining -= n;
+            }
+            buf.flip();
+        }
+    }
+}
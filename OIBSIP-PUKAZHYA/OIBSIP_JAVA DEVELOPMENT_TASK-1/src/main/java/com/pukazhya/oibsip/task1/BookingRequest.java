@@ -0,0 +1,32 @@
+package com.pukazhya.oibsip.task1;
+
+import java.time.LocalDate;
+
+/**
+ * BookingRequest.java
+ * One passenger of a batch booking
+ */
+final class BookingRequest {
+    final String name;
+    final int age;
+    final String trainNo;
+    final String trainName;
+    final String classType;
+    final String from;
+    final String to;
+    final LocalDate travelDate;
+    final SeatInventory.Berth berth;
+
+    BookingRequest(String name, int age, String trainNo, String trainName, String classType,
+                   String from, String to, LocalDate travelDate, SeatInventory.Berth berth) {
+        this.name = name;
+        this.age = age;
+        this.trainNo = trainNo;
+        this.trainName = trainName;
+        this.classType = classType;
+        this.from = from;
+        this.to = to;
+        this.travelDate = travelDate;
+        this.berth = berth == null ? SeatInventory.Berth.ANY : berth;
+    }
+}
@@ -0,0 +1,22 @@
+package com.pukazhya.oibsip.task1;
+
+/**
+ * BookingResult.java
+ * Outcome of one batch item: the reservation, or why it was not booked
+ */
+final class BookingResult {
+    private final Reservation reservation;
+    private final String error;
+
+    private BookingResult(Reservation reservation, String error) {
+        this.reservation = reservation;
+        this.error = error;
+    }
+
+    static BookingResult booked(Reservation r) { return new BookingResult(r, null); }
+    static BookingResult failed(String error) { return new BookingResult(null, error); }
+
+    boolean isBooked() { return reservation != null; }
+    Reservation getReservation() { return reservation; }
+    String getError() { return error; }
+}
@@ -0,0 +1,362 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * CsvFileLoader.java
+ * Parallel, memory-mapped reader for CSV record files
+ *
+ * The file is cut into fixed-size raw chunks that are mapped and scanned on a
+ * ForkJoin pool in three passes:
+ *   1. count '"' bytes per chunk (the quote parity at each chunk start follows
+ *      from a prefix sum, since "" escapes toggle twice),
+ *   2. move every chunk start forward to the first newline outside quotes,
+ *   3. parse the records between consecutive boundaries.
+ * Records may therefore contain quoted newlines. Results keep file order.
+ * A boundary is searched for at most one chunk length past the chunk start,
+ * so no mapping is longer than two chunks (128 MB).
+ *
+ * The prefix sum is only right for well-formed quoting: one stray '"' would
+ * shift every later boundary. So pass 3 also checks the quoting of each record,
+ * and if any chunk finds a quote in the middle of a field, a quote still open
+ * at its end, or no boundary in pass 2, the whole file is read again by one
+ * serial scan. That scan keeps mid-field quotes as data. A quoted field that
+ * takes in a newline and then turns out malformed (data after its closing
+ * quote, or still open MAX_RECORD_BYTES past its record start) is taken as
+ * an unbalanced quote: the record is cut at that newline and counted as
+ * skipped, and the scan goes on from there. Only a line longer than two
+ * chunks fails the load.
+ * Records are handed to the parser as byte slices of the mapping; no line
+ * Strings are created.
+ */
+final class CsvFileLoader {
+    // below this a single chunk is cheaper than the fork/join overhead
+    private static final long MIN_PARALLEL_BYTES = 1L << 20;
+    // raw chunk size and boundary search window; keeps every mapping well under the 2 GB MappedByteBuffer limit
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    // a quoted field still open this far past its record start is an unbalanced quote
+    private static final long MAX_RECORD_BYTES = 1L << 20;
+
+    private CsvFileLoader() {}
+
+    // Parses one record occupying buf[from, to); returns null (and sets error()) for rows to skip
+    interface RecordParser<T> {
+        T parse(ByteBuffer buf, int from, int to);
+
+        String error();
+    }
+
+    static final class Stats {
+        final long rows;
+        final long skipped;
+        final long bytes;
+        final long nanos;
+        final String firstError;   // "offset N: reason" of the first skipped row, or null
+
+        Stats(long rows, long skipped, long bytes, long nanos) {
+            this(rows, skipped, bytes, nanos, null);
+        }
+
+        Stats(long rows, long skipped, long bytes, long nanos, String firstError) {
+            this.rows = rows;
+            this.skipped = skipped;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.firstError = firstError;
+        }
+
+        long millis() { return nanos / 1_000_000; }
+
+        double rowsPerSecond() { return nanos == 0 ? 0 : rows * 1e9 / nanos; }
+
+        Stats plus(Stats o) {
+            return new Stats(rows + o.rows, skipped + o.skipped, bytes + o.bytes, nanos + o.nanos,
+                    firstError != null ? firstError : o.firstError);
+        }
+
+        @Override
+        public String toString() {
+            String s = String.format(java.util.Locale.US, "%,d rows (%,d skipped, %,d bytes) in %,d ms - %,.0f rows/s",
+                    rows, skipped, bytes, millis(), rowsPerSecond());
+            return firstError == null ? s : s + " - first skipped row at " + firstError;
+        }
+    }
+
+    static final class Result<T> {
+        final List<T> rows;
+        final Stats stats;
+
+        Result(List<T> rows, Stats stats) {
+            this.rows = rows;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * Parse every record of the file. Each chunk gets its own parser from the
+     * factory, so parsers may keep reusable buffers.
+     */
+    static <T> Result<T> load(Path file, Supplier<? extends RecordParser<T>> parsers, ForkJoinPool pool) throws IOException {
+        return load(file, parsers, pool, MAX_CHUNK_BYTES);
+    }
+
+    /**
+     * As above, with raw chunks (and the boundary search window) of at most
+     * maxChunkBytes; every mapping is at most twice that.
+     *
+     * @throws IOException if a line runs on for more than two chunks
+     */
+    static <T> Result<T> load(Path file, Supplier<? extends RecordParser<T>> parsers, ForkJoinPool pool,
+                              long maxChunkBytes) throws IOException {
+        long t0 = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size == 0) return new Result<>(new ArrayList<>(), new Stats(0, 0, 0, System.nanoTime() - t0));
+
+            int chunks = chunkCount(size, pool.getParallelism(), maxChunkBytes);
+            long chunkSize = (size + chunks - 1) / chunks;
+
+            // pass 1: quote counts per raw chunk
+            List<ForkJoinTask<Long>> counts = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = i * chunkSize, end = Math.min(size, start + chunkSize);
+                counts.add(pool.submit(() -> countQuotes(ch, start, end)));
+            }
+            boolean[] inQuotesAt = new boolean[chunks];
+            long quotes = 0;
+            for (int i = 0; i < chunks; i++) {
+                inQuotesAt[i] = (quotes & 1) == 1;
+                quotes += counts.get(i).join();
+            }
+
+            // pass 2: snap each chunk start to a record boundary (-1: none in the window)
+            List<ForkJoinTask<Long>> snaps = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = i * chunkSize;
+                boolean q = inQuotesAt[i];
+                snaps.add(i == 0 ? ForkJoinTask.adapt(() -> 0L) : pool.submit(() -> nextBoundary(ch, start, size, q, maxChunkBytes)));
+            }
+            long[] bounds = new long[chunks + 1];
+            boolean lost = false;
+            for (int i = 0; i < chunks; i++) {
+                bounds[i] = i == 0 ? 0 : snaps.get(i).join();
+                lost |= bounds[i] < 0;
+            }
+            if (lost) return serial(ch, size, parsers.get(), maxChunkBytes, t0);
+            bounds[chunks] = size;
+            // a record longer than a chunk pushes the boundary past the next chunk start
+            for (int i = chunks - 1; i >= 0; i--) bounds[i] = Math.min(bounds[i], bounds[i + 1]);
+
+            // pass 3: parse the records of every chunk
+            long limit = Math.min(MAX_RECORD_BYTES, maxChunkBytes);
+            List<ForkJoinTask<Chunk<T>>> parts = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = bounds[i], end = bounds[i + 1];
+                if (end - start > 2 * maxChunkBytes) {   // cannot happen with bounded boundary search; never map it
+                    throw new IOException(file + ": records between offsets " + start + " and " + end + " exceed " + 2 * maxChunkBytes + " bytes");
+                }
+                parts.add(pool.submit(() -> parse(ch, start, end, limit, parsers.get())));
+            }
+            List<T> rows = new ArrayList<>();
+            long skipped = 0;
+            String firstError = null;
+            for (ForkJoinTask<Chunk<T>> part : parts) {
+                Chunk<T> c = part.join();
+                if (c.malformed) {
+                    for (ForkJoinTask<Chunk<T>> p : parts) p.quietlyJoin();
+                    return serial(ch, size, parsers.get(), maxChunkBytes, t0);
+                }
+                rows.addAll(c.rows);
+                skipped += c.skipped;
+                if (firstError == null) firstError = c.firstError;
+            }
+            return new Result<>(rows, new Stats(rows.size(), skipped, size, System.nanoTime() - t0, firstError));
+        } catch (RuntimeException ex) {
+            // join() may rethrow a copy of the task's exception, wrapping the original
+            for (Throwable t = ex.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof IOException) throw (IOException) t;
+            }
+            throw ex;
+        }
+    }
+
+    // Read the whole file in one pass, resyncing after an unbalanced quote (see the class comment)
+    private static <T> Result<T> serial(FileChannel ch, long size, RecordParser<T> parser, long maxChunkBytes, long t0) throws IOException {
+        Chunk<T> out = new Chunk<>();
+        long limit = Math.min(MAX_RECORD_BYTES, maxChunkBytes);
+        long pos = 0;
+        while (pos < size) {
+            long end = Math.min(size, pos + 2 * maxChunkBytes);
+            int done = scan(map(ch, pos, end), pos, end == size, limit, true, parser, out);
+            if (done == 0) {
+                throw new IOException("No record boundary within " + 2 * maxChunkBytes + " bytes of offset " + pos
+                        + " (a line longer than that)");
+            }
+            pos += done;
+        }
+        return new Result<>(out.rows, new Stats(out.rows.size(), out.skipped, size, System.nanoTime() - t0, out.firstError));
+    }
+
+    private static int chunkCount(long size, int parallelism, long maxChunkBytes) {
+        if (size < MIN_PARALLEL_BYTES && size <= maxChunkBytes) return 1;
+        long byCores = Math.max(1, parallelism) * 4L;
+        long bySize = (size + maxChunkBytes - 1) / maxChunkBytes;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(byCores, bySize));
+    }
+
+    private static MappedByteBuffer map(FileChannel ch, long start, long end) {
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private static long countQuotes(FileChannel ch, long start, long end) {
+        if (end <= start) return 0;
+        MappedByteBuffer buf = map(ch, start, end);
+        long n = 0;
+        for (int i = 0, len = buf.limit(); i < len; i++) {
+            if (buf.get(i) == '"') n++;
+        }
+        return n;
+    }
+
+    // First offset after a newline that is outside quotes, searching [start, start + window); end of file counts; -1 if none
+    private static long nextBoundary(FileChannel ch, long start, long size, boolean inQuotes, long window) {
+        long end = Math.min(size, start + window);
+        MappedByteBuffer buf = map(ch, start, end);
+        for (int i = 0, len = buf.limit(); i < len; i++) {
+            byte b = buf.get(i);
+            if (b == '"') inQuotes = !inQuotes;
+            else if (b == '\n' && !inQuotes) return start + i + 1;
+        }
+        return end == size ? size : -1;
+    }
+
+    private static <T> Chunk<T> parse(FileChannel ch, long start, long end, long limit, RecordParser<T> parser) {
+        Chunk<T> out = new Chunk<>();
+        if (end > start) scan(map(ch, start, end), start, true, limit, false, parser, out);
+        return out;
+    }
+
+    /**
+     * Hand every record of buf (which starts at file offset base) to the parser.
+     * A quote opens a field only at its start and closes it only before a comma
+     * or line end; any other quote marks the chunk malformed and is kept as data.
+     * A quoted field still open limit bytes past its record start does too.
+     * With resync, a record that took in a newline inside quotes and then breaks
+     * either rule is cut at that newline and skipped.
+     *
+     * @param last whether the end of buf ends the last record (else it is left for the next buffer)
+     * @return bytes of buf consumed (whole records)
+     */
+    private static <T> int scan(ByteBuffer buf, long base, boolean last, long limit, boolean resync,
+                                RecordParser<T> parser, Chunk<T> out) {
+        int len = buf.limit();
+        int recStart = 0, firstNewline = -1;
+        boolean quoted = false, fieldStart = true, closed = false;
+        for (int i = 0; i <= len; i++) {
+            if (i == len) {
+                if (!last) return recStart;
+                if (!quoted) break;
+                out.malformed = true;
+                if (!resync || firstNewline < 0) break;
+                i = cut(base, recStart, firstNewline, out);
+                recStart = i + 1;
+                firstNewline = -1;
+                quoted = closed = false;
+                fieldStart = true;
+                continue;
+            }
+            byte b = buf.get(i);
+            if (quoted) {
+                if (b == '"') {
+                    if (i + 1 == len && !last) return recStart;   // may be the first half of a "" escape
+                    if (i + 1 < len && buf.get(i + 1) == '"') {
+                        i++;
+                    } else {
+                        quoted = false;
+                        closed = true;
+                    }
+                } else if (b == '\n') {
+                    if (firstNewline < 0) firstNewline = i;
+                    if (i - recStart > limit) {
+                        out.malformed = true;
+                        if (resync) {
+                            i = cut(base, recStart, firstNewline, out);
+                            recStart = i + 1;
+                            firstNewline = -1;
+                            quoted = closed = false;
+                            fieldStart = true;
+                        }
+                    }
+                }
+            } else if (b == '\n') {
+                emit(buf, recStart, i, base, parser, out);
+                recStart = i + 1;
+                firstNewline = -1;
+                fieldStart = true;
+                closed = false;
+            } else if (b == ',') {
+                fieldStart = true;
+                closed = false;
+            } else if (b == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else {
+                if (b == '"' || closed && b != '\r') {   // stray quote, or data after a closing one
+                    out.malformed = true;
+                    if (resync && firstNewline >= 0) {
+                        // the quote that took in a newline was not a real one
+                        i = cut(base, recStart, firstNewline, out);
+                        recStart = i + 1;
+                        firstNewline = -1;
+                        closed = false;
+                        fieldStart = true;
+                        continue;
+                    }
+                }
+                fieldStart = false;
+            }
+        }
+        emit(buf, recStart, len, base, parser, out);
+        return len;
+    }
+
+    // Skip the record at recStart up to its first newline; returns that newline's index
+    private static int cut(long base, int recStart, int newline, Chunk<?> out) {
+        out.skip(base + recStart, "unbalanced quote");
+        return newline;
+    }
+
+    private static <T> void emit(ByteBuffer buf, int from, int to, long base, RecordParser<T> parser, Chunk<T> out) {
+        if (to > from && buf.get(to - 1) == '\r') to--;
+        if (to <= from) return;
+        T row = parser.parse(buf, from, to);
+        if (row != null) out.rows.add(row);
+        else out.skip(base + from, parser.error());
+    }
+
+    private static final class Chunk<T> {
+        final List<T> rows = new ArrayList<>();
+        long skipped;
+        String firstError;
+        boolean malformed;   // quoting the prefix-sum parity cannot have followed
+
+        void skip(long offset, String error) {
+            if (firstError == null) firstError = offset + ": " + error;
+            skipped++;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * DatasetGenerator.java
+ * Seeded generator of large, realistic reservations.csv files
+ *
+ * Run (after 'mvn compile'):
+ *   mvn exec:java -Dexec.mainClass="com.pukazhya.oibsip.task1.DatasetGenerator" -Dexec.args="5000000 big.csv 42"
+ *   args: rows [output file [seed [first booking day yyyy-MM-dd]]]
+ *
+ * The same arguments always produce the same bytes. Rows are in booking order:
+ * trains and stops come from the route catalogue (the journey always runs
+ * forward along the route), fares from the service's fare formula, PNRs from
+ * {@link PnrGenerator} on a node of their own replaying the synthetic booking
+ * clock, so generated PNRs never clash with live bookings. About 8% of rows
+ * are cancelled. The seat column is left empty; the service assigns berths to
+ * upcoming rows when it loads the file.
+ */
+public class DatasetGenerator {
+    // PNR node reserved for generated data (live processes default to node 0)
+    static final int DATASET_PNR_NODE = PnrGenerator.MAX_NODE;
+
+    static final String[] FIRST_NAMES = {
+            "Aarav", "Aditi", "Akash", "Ananya", "Arjun", "Bhavna", "Chetan", "Deepa", "Divya", "Ganesh",
+            "Gayathri", "Harish", "Isha", "Karthik", "Kavya", "Lakshmi", "Manoj", "Meena", "Mohan", "Nandini",
+            "Naveen", "Pooja", "Pradeep", "Priya", "Rahul", "Ramesh", "Revathi", "Rohit", "Saranya", "Sanjay",
+            "Shreya", "Siva", "Sneha", "Suresh", "Tamil", "Uma", "Varun", "Vidya", "Vijay", "Yamini"};
+    static final String[] LAST_NAMES = {
+            "Agarwal", "Balaji", "Chandran", "Das", "Gupta", "Iyer", "Jain", "Kannan", "Krishnan", "Kumar",
+            "Menon", "Murugan", "Nair", "Natarajan", "Pandey", "Patel", "Pillai", "Raghavan", "Rajan", "Rao",
+            "Reddy", "Sharma", "Singh", "Srinivasan", "Subramanian", "Sundaram", "Venkatesh", "Verma"};
+
+    private static final String[] CLASSES = {"Sleeper", "AC 3-tier", "General", "AC 2-tier", "AC 1st"};
+    private static final int[] CLASS_WEIGHTS = {35, 25, 20, 15, 5};
+    private static final String[] CANCEL_REASONS = {
+            "change of plan", "medical emergency", "booked another train", "trip postponed", "work, \"urgent\""};
+    private static final int CANCEL_PERCENT = 8;
+    private static final int BOOKING_DAYS = 540;
+    private static final int MAX_ADVANCE_DAYS = 120;
+
+    public static void main(String[] args) throws IOException {
+        long rows = args.length > 0 ? Long.parseLong(args[0].replace("_", "")) : 1_000_000;
+        Path out = Paths.get(args.length > 1 ? args[1] : "reservations.csv");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        LocalDate firstDay = args.length > 3 ? LocalDate.parse(args[3]) : LocalDate.of(2025, 6, 1);
+        long t0 = System.nanoTime();
+        long bytes = generate(out, rows, seed, firstDay);
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf(Locale.US, "Wrote %,d rows (%,d bytes) to %s in %.1f s - %,.0f rows/s%n", rows, bytes, out, secs, rows / secs);
+    }
+
+    /**
+     * Write rows to the file (replacing it).
+     *
+     * @return bytes written
+     */
+    static long generate(Path out, long rows, long seed, LocalDate firstDay) throws IOException {
+        List<TrainRoute> routes = new ArrayList<>(RouteCatalog.load(out).routes().values());
+        SplittableRandom rnd = new SplittableRandom(seed);
+        PnrGenerator pnrs = new PnrGenerator(DATASET_PNR_NODE);
+        ReservationCodec codec = new ReservationCodec();
+        StringBuilder row = new StringBuilder(192);
+        long startSecond = firstDay.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        double stepSeconds = BOOKING_DAYS * 86_400.0 / Math.max(1, rows);
+        long bytes = 0;
+        try (BufferedWriter w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < rows; i++) {
+                long second = startSecond + (long) (i * stepSeconds);
+                LocalDateTime bookedAt = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+                TrainRoute route = routes.get(rnd.nextInt(routes.size()));
+                List<String> stops = route.getStops();
+                int a = rnd.nextInt(stops.size() - 1);
+                int b = a + 1 + rnd.nextInt(stops.size() - 1 - a);
+                String from = stops.get(a), to = stops.get(b);
+                String cls = pick(rnd);
+                boolean cancelled = rnd.nextInt(100) < CANCEL_PERCENT;
+                Reservation r = new Reservation(pnrs.nextAt(second * 1000), new Passenger(name(rnd), age(rnd)),
+                        route.getTrainNo(), route.getName(), cls, from, to, bookedAt,
+                        bookedAt.toLocalDate().plusDays(1 + rnd.nextInt(MAX_ADVANCE_DAYS)),
+                        ReservationService.fareFor(route.distanceKm(from, to), cls),
+                        cancelled ? "Cancelled" : "Booked",
+                        cancelled ? CANCEL_REASONS[rnd.nextInt(CANCEL_REASONS.length)] : "");
+                row.setLength(0);
+                codec.append(r, row);
+                row.append('\n');
+                w.append(row);
+                bytes += row.length();   // ASCII only
+            }
+        }
+        return bytes;
+    }
+
+    private static String pick(SplittableRandom rnd) {
+        int x = rnd.nextInt(100);
+        for (int i = 0; i < CLASSES.length; i++) {
+            x -= CLASS_WEIGHTS[i];
+            if (x < 0) return CLASSES[i];
+        }
+        return CLASSES[0];
+    }
+
+    private static String name(SplittableRandom rnd) {
+        String first = FIRST_NAMES[rnd.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[rnd.nextInt(LAST_NAMES.length)];
+        // some passengers go by an initial instead of a surname
+        return rnd.nextInt(5) == 0 ? first + " " + last.charAt(0) : first + " " + last;
+    }
+
+    // Mostly adults, some children and seniors
+    private static int age(SplittableRandom rnd) {
+        int x = rnd.nextInt(100);
+        if (x < 8) return 1 + rnd.nextInt(12);
+        if (x < 88) return 18 + rnd.nextInt(42);
+        return 60 + rnd.nextInt(30);
+    }
+}
@@ -0,0 +1,200 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * DepartureIndex.java
+ * Sorted secondary index (trainNo, travel date, class) -> record ids
+ *
+ * Each departure (one train on one date in one class) is a key of a TreeMap,
+ * packed into a long as [train code:16][epoch day + 2^31:32][class code:16] so
+ * keys sort by train, then date, then class. The codes are dense numbers given
+ * out in order of first appearance; only equality matters for train and class.
+ * A query for one train between two dates is a subMap over that train's
+ * contiguous key range: O(log departures) to find it, then only the matching
+ * posting lists are read. Other trains and dates are never touched.
+ *
+ * Record ids are row numbers of the service's reservation store, appended in
+ * increasing order, so each posting list is sorted.
+ *
+ * Not thread-safe: the owning month partition guards it with its read/write lock.
+ */
+final class DepartureIndex {
+    private static final int MAX_CODES = 0xFFFF;
+    private static final long DAY_BIAS = 1L << 31;
+    private static final int ANY = -1;
+    private static final int NO_CODE = -2;
+
+    private final TreeMap<Long, Postings> postings = new TreeMap<>();
+    private final Map<String, Integer> trainCodes = new HashMap<>();
+    private final Map<String, Integer> classCodes = new HashMap<>();
+    private int size;
+
+    void clear() {
+        postings.clear();
+        trainCodes.clear();
+        classCodes.clear();
+        size = 0;
+    }
+
+    int size() { return size; }
+
+    // Number of distinct (train, date, class) departures
+    int departures() { return postings.size(); }
+
+    // Index the next id (must equal the current size)
+    void add(int id, String trainNo, long epochDay, String classType) {
+        add(id, keyOf(trainNo, epochDay, classType));
+    }
+
+    // Index the next id under a key from keyOf
+    void add(int id, long key) {
+        if (id != size) throw new IllegalArgumentException("ids must be appended in order: " + id);
+        postings.computeIfAbsent(key, k -> new Postings()).add(id);
+        size++;
+    }
+
+    /**
+     * Key of a departure, giving its train and class codes first if they are
+     * new; nothing is indexed, so a caller can get the key before storing the row.
+     *
+     * @throws IllegalStateException if no code is left for a new train or class
+     */
+    long keyOf(String trainNo, long epochDay, String classType) {
+        return key(code(trainCodes, trainNo), epochDay, code(classCodes, classType));
+    }
+
+    /**
+     * Ids of one train's records with travel day in [fromDay, toDay], optionally
+     * of one class only; ordered by date, then class (first appearance), then id.
+     */
+    int[] rows(String trainNo, long fromDay, long toDay, String classType) {
+        NavigableMap<Long, Postings> range = range(trainNo, fromDay, toDay);
+        int cls = classCode(classType);
+        if (range == null || cls == NO_CODE) return new int[0];
+        int[] out = new int[count(range, cls)];
+        int at = 0;
+        for (Map.Entry<Long, Postings> e : range.entrySet()) {
+            if (cls != ANY && classOf(e.getKey()) != cls) continue;
+            Postings p = e.getValue();
+            System.arraycopy(p.ids, 0, out, at, p.size);
+            at += p.size;
+        }
+        return out;
+    }
+
+    // Number of ids rows() would return, without collecting them
+    int count(String trainNo, long fromDay, long toDay, String classType) {
+        NavigableMap<Long, Postings> range = range(trainNo, fromDay, toDay);
+        int cls = classCode(classType);
+        return range == null || cls == NO_CODE ? 0 : count(range, cls);
+    }
+
+    private NavigableMap<Long, Postings> range(String trainNo, long fromDay, long toDay) {
+        Integer train = trainCodes.get(norm(trainNo));
+        fromDay = Math.max(fromDay, Integer.MIN_VALUE);
+        toDay = Math.min(toDay, Integer.MAX_VALUE);
+        if (train == null || fromDay > toDay) return null;
+        return postings.subMap(key(train, fromDay, 0), true, key(train, toDay, MAX_CODES), true);
+    }
+
+    // ANY for a null class, NO_CODE for a class never indexed
+    private int classCode(String classType) {
+        if (classType == null) return ANY;
+        Integer cls = classCodes.get(norm(classType));
+        return cls == null ? NO_CODE : cls;
+    }
+
+    private static int count(NavigableMap<Long, Postings> range, int cls) {
+        int n = 0;
+        for (Map.Entry<Long, Postings> e : range.entrySet()) {
+            if (cls == ANY || classOf(e.getKey()) == cls) n += e.getValue().size;
+        }
+        return n;
+    }
+
+    void writeTo(BinarySnapshot.Out out) throws IOException {
+        out.writeInt(size);
+        writeCodes(out, trainCodes);
+        writeCodes(out, classCodes);
+        out.writeInt(postings.size());
+        for (Map.Entry<Long, Postings> e : postings.entrySet()) {
+            out.writeLong(e.getKey());
+            out.writeInt(e.getValue().size);
+            out.writeInts(e.getValue().ids, e.getValue().size);
+        }
+    }
+
+    // Replace the contents with a section written by writeTo
+    void readFrom(BinarySnapshot.In in) throws IOException {
+        clear();
+        int n = in.readInt();
+        if (n < 0) throw new IOException("Corrupt departure index size");
+        readCodes(in, trainCodes);
+        readCodes(in, classCodes);
+        int keys = in.readCount(8 + 4);
+        for (int k = 0; k < keys; k++) {
+            long key = in.readLong();
+            int len = in.readCount(4);
+            if (len > n) throw new IOException("Corrupt departure posting list");
+            Postings p = new Postings();
+            p.ids = new int[Math.max(len, 1)];
+            p.size = len;
+            in.readInts(p.ids, len);
+            postings.put(key, p);
+        }
+        size = n;
+    }
+
+    private static void writeCodes(BinarySnapshot.Out out, Map<String, Integer> codes) throws IOException {
+        String[] byCode = new String[codes.size()];
+        for (Map.Entry<String, Integer> e : codes.entrySet()) byCode[e.getValue()] = e.getKey();
+        out.writeInt(byCode.length);
+        for (String s : byCode) out.writeString(s);
+    }
+
+    private static void readCodes(BinarySnapshot.In in, Map<String, Integer> codes) throws IOException {
+        int n = in.readCount(4);
+        if (n > MAX_CODES) throw new IOException("Corrupt departure index codes");
+        for (int i = 0; i < n; i++) {
+            String s = in.readString();
+            codes.put(s, i);
+        }
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        String v = norm(value);
+        Integer c = codes.get(v);
+        if (c != null) return c;
+        if (codes.size() >= MAX_CODES) throw new IllegalStateException("Too many distinct values in departure index (max " + MAX_CODES + ")");
+        codes.put(v, codes.size());
+        return codes.size() - 1;
+    }
+
+    private static String norm(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    private static long key(int train, long epochDay, int cls) {
+        return (long) train << 48 | (epochDay + DAY_BIAS) << 16 | cls;
+    }
+
+    private static int classOf(long key) {
+        return (int) (key & MAX_CODES);
+    }
+
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.pukazhya.oibsip.task1;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * FareQuoteCache.java
+ * Bounded LRU cache of fare quotes keyed by (train, from, to, class)
+ *
+ * Stations are matched case-insensitively and all parts are trimmed, so the
+ * keystrokes of a fare preview and the booking that follows share one entry.
+ * Quotes are pure functions of the key, so a stale entry is impossible and
+ * nothing ever needs invalidating.
+ *
+ * Thread-safe; the monitor is held for the map access only, never while a
+ * quote is computed.
+ */
+final class FareQuoteCache {
+    private final int capacity;
+    // guarded by this
+    private final LinkedHashMap<String,Double> quotes;
+    private long hits, misses, evictions;
+
+    FareQuoteCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.quotes = new LinkedHashMap<String,Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Double> eldest) {
+                if (size() <= FareQuoteCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    // Cached quote, or the computed one (stored for next time)
+    double get(String trainNo, String from, String to, String classType, DoubleSupplier compute) {
+        String key = key(trainNo, from, to, classType);
+        synchronized (this) {
+            Double q = quotes.get(key);
+            if (q != null) {
+                hits++;
+                return q;
+            }
+            misses++;
+        }
+        double q = compute.getAsDouble();
+        synchronized (this) {
+            quotes.put(key, q);
+        }
+        return q;
+    }
+
+    synchronized Stats stats() {
+        return new Stats(quotes.size(), capacity, hits, misses, evictions);
+    }
+
+    private static String key(String trainNo, String from, String to, String classType) {
+        return trim(trainNo) + '|' + trim(from).toUpperCase(Locale.ROOT) + '|' + trim(to).toUpperCase(Locale.ROOT) + '|' + trim(classType);
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    // Point-in-time counters
+    static final class Stats {
+        final int size, capacity;
+        final long hits, misses, evictions;
+
+        Stats(int size, int capacity, long hits, long misses, long evictions) {
+            this.size = size;
+            this.capacity = capacity;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        double hitRate() {
+            long n = hits + misses;
+            return n == 0 ? 0 : (double) hits / n;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%,d/%,d quotes, %,d hits, %,d misses (%.1f%% hit), %,d evicted",
+                    size, capacity, hits, misses, hitRate() * 100, evictions);
+        }
+    }
+}
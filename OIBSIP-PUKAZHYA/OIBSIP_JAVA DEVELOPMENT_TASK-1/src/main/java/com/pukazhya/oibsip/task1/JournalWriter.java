@@ -0,0 +1,259 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * JournalWriter.java
+ * Write-behind group commit in front of {@link ReservationJournal}
+ *
+ * Callers hand over encoded rows (cheap, done under the service lock so the
+ * journal order matches the in-memory order) and get a future back. A single
+ * writer thread drains everything queued since its last round, drops rows
+ * superseded by a later row for the same PNR, writes the rest with one OS
+ * write and, if any caller in the group asked for it, one fsync.
+ *
+ * Durability per call:
+ *  - FIRE_AND_FORGET: the future is already complete; a crash can lose the row
+ *  - WAIT_FOR_WRITE : completes once the row is in the OS page cache
+ *  - WAIT_FOR_FSYNC : completes once the row is on the device
+ *
+ * Write failures complete the affected futures exceptionally and are reported
+ * to the error handler; nothing here touches the UI.
+ */
+final class JournalWriter {
+
+    enum Durability { FIRE_AND_FORGET, WAIT_FOR_WRITE, WAIT_FOR_FSYNC }
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final ReservationJournal journal;
+    private final Consumer<IOException> onError;
+    private final Thread thread;
+
+    // guarded by this
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private int queuedRows;
+    private boolean closed;
+
+    // metrics; written by the writer thread, read under this
+    private int maxQueuedRows;
+    private long commits, rowsWritten, rowsCoalesced, fsyncs, failures;
+    private long commitNanosTotal, commitNanosMax;
+    private long waitNanosTotal, waitNanosMax;
+
+    JournalWriter(ReservationJournal journal, Consumer<IOException> onError) {
+        this(journal, onError, "reservation-journal-writer");
+    }
+
+    JournalWriter(ReservationJournal journal, Consumer<IOException> onError, String threadName) {
+        this.journal = journal;
+        this.onError = onError;
+        this.thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue rows for the journal; keys[i] is the PNR of rows[i].
+     *
+     * @return completes at the requested durability, exceptionally with the IOException on failure
+     */
+    CompletableFuture<Void> submit(List<String> keys, List<String> rows, Durability durability) {
+        if (rows.isEmpty()) return DONE;
+        Pending p = new Pending(keys, rows, durability);
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Journal writer is closed");
+            queue.add(p);
+            queuedRows += rows.size();
+            maxQueuedRows = Math.max(maxQueuedRows, queuedRows);
+            notifyAll();
+        }
+        return durability == Durability.FIRE_AND_FORGET ? DONE : p.done;
+    }
+
+    // Wait until everything queued so far has been written and synced
+    void flush() {
+        CompletableFuture<Void> marker;
+        synchronized (this) {
+            if (closed && queue.isEmpty()) return;
+            Pending p = new Pending(new ArrayList<>(), new ArrayList<>(), Durability.WAIT_FOR_FSYNC);
+            queue.add(p);
+            notifyAll();
+            marker = p.done;
+        }
+        marker.exceptionally(e -> null).join();
+    }
+
+    // Drain the queue, then stop the writer thread
+    void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized Metrics metrics() {
+        return new Metrics(queuedRows, maxQueuedRows, commits, rowsWritten, rowsCoalesced, fsyncs, failures,
+                commits == 0 ? 0 : commitNanosTotal / commits, commitNanosMax,
+                commits == 0 ? 0 : waitNanosTotal / commits, waitNanosMax);
+    }
+
+    private void run() {
+        while (true) {
+            List<Pending> group;
+            synchronized (this) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (queue.isEmpty()) return;
+                group = new ArrayList<>(queue);
+                queue.clear();
+                queuedRows = 0;
+            }
+            commit(group);
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        long t0 = System.nanoTime();
+        boolean sync = false;
+        for (Pending p : group) sync |= p.durability == Durability.WAIT_FOR_FSYNC;
+        List<String> rows = coalesce(group);
+        try {
+            journal.appendAll(rows);
+            for (Pending p : group) if (p.durability != Durability.WAIT_FOR_FSYNC) p.done.complete(null);
+            if (sync) {
+                journal.sync();
+                for (Pending p : group) p.done.complete(null);
+            }
+        } catch (IOException e) {
+            for (Pending p : group) p.done.completeExceptionally(e);
+            synchronized (this) {
+                failures++;
+            }
+            onError.accept(e);
+            return;
+        }
+        long t1 = System.nanoTime();
+        int submitted = 0;
+        long oldest = t1;
+        for (Pending p : group) {
+            submitted += p.rows.size();
+            oldest = Math.min(oldest, p.enqueuedAt);
+        }
+        synchronized (this) {
+            commits++;
+            rowsWritten += rows.size();
+            rowsCoalesced += submitted - rows.size();
+            if (sync) fsyncs++;
+            commitNanosTotal += t1 - t0;
+            commitNanosMax = Math.max(commitNanosMax, t1 - t0);
+            waitNanosTotal += t1 - oldest;
+            waitNanosMax = Math.max(waitNanosMax, t1 - oldest);
+        }
+    }
+
+    // Rows of the group in order, keeping only the last row per PNR
+    private static List<String> coalesce(List<Pending> group) {
+        List<String> all = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Pending p : group) {
+            all.addAll(p.rows);
+            keys.addAll(p.keys);
+        }
+        if (all.size() < 2) return all;
+        Set<String> seen = new HashSet<>();
+        boolean[] keep = new boolean[all.size()];
+        int kept = 0;
+        for (int i = all.size() - 1; i >= 0; i--) {
+            if (seen.add(keys.get(i).toUpperCase(Locale.ROOT))) {
+                keep[i] = true;
+                kept++;
+            }
+        }
+        if (kept == all.size()) return all;
+        List<String> out = new ArrayList<>(kept);
+        for (int i = 0; i < all.size(); i++) if (keep[i]) out.add(all.get(i));
+        return out;
+    }
+
+    private static final class Pending {
+        final List<String> keys;
+        final List<String> rows;
+        final Durability durability;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(List<String> keys, List<String> rows, Durability durability) {
+            if (keys.size() != rows.size()) throw new IllegalArgumentException("one key per row");
+            this.keys = keys;
+            this.rows = rows;
+            this.durability = durability;
+        }
+    }
+
+    // Point-in-time counters; latencies in nanoseconds
+    static final class Metrics {
+        static final Metrics NONE = new Metrics(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+        final int queuedRows, maxQueuedRows;
+        final long commits, rowsWritten, rowsCoalesced, fsyncs, failures;
+        final long avgCommitNanos, maxCommitNanos;   // one group: write (+ fsync)
+        final long avgWaitNanos, maxWaitNanos;       // oldest row of a group: queued -> committed
+
+        Metrics(int queuedRows, int maxQueuedRows, long commits, long rowsWritten, long rowsCoalesced, long fsyncs,
+                long failures, long avgCommitNanos, long maxCommitNanos, long avgWaitNanos, long maxWaitNanos) {
+            this.queuedRows = queuedRows;
+            this.maxQueuedRows = maxQueuedRows;
+            this.commits = commits;
+            this.rowsWritten = rowsWritten;
+            this.rowsCoalesced = rowsCoalesced;
+            this.fsyncs = fsyncs;
+            this.failures = failures;
+            this.avgCommitNanos = avgCommitNanos;
+            this.maxCommitNanos = maxCommitNanos;
+            this.avgWaitNanos = avgWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        // Two writers' counters together: sums, maxima, and averages weighted by commits
+        Metrics plus(Metrics o) {
+            long c = commits + o.commits;
+            return new Metrics(queuedRows + o.queuedRows, Math.max(maxQueuedRows, o.maxQueuedRows), c,
+                    rowsWritten + o.rowsWritten, rowsCoalesced + o.rowsCoalesced, fsyncs + o.fsyncs, failures + o.failures,
+                    c == 0 ? 0 : (avgCommitNanos * commits + o.avgCommitNanos * o.commits) / c, Math.max(maxCommitNanos, o.maxCommitNanos),
+                    c == 0 ? 0 : (avgWaitNanos * commits + o.avgWaitNanos * o.commits) / c, Math.max(maxWaitNanos, o.maxWaitNanos));
+        }
+
+        // Rows per commit; higher means more group commit
+        double rowsPerCommit() {
+            return commits == 0 ? 0 : (double) (rowsWritten + rowsCoalesced) / commits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "queue %,d (max %,d), %,d commits, %,d rows (%.1f/commit, %,d coalesced), %,d fsyncs, %,d failures, "
+                            + "commit avg %.2f ms max %.2f ms, wait avg %.2f ms max %.2f ms",
+                    queuedRows, maxQueuedRows, commits, rowsWritten, rowsPerCommit(), rowsCoalesced, fsyncs, failures,
+                    avgCommitNanos / 1e6, maxCommitNanos / 1e6, avgWaitNanos / 1e6, maxWaitNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.pukazhya.oibsip.task1;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram.java
+ * Fixed-size, log-bucketed histogram of nanosecond latencies (HDR-style)
+ *
+ * Values below 32 ns get a bucket each; above that every power of two is
+ * split into 32 equal sub-buckets, so a bucket is never wider than about 3%
+ * of the values it holds. Values up to 2^44 ns (about 4.9 hours) fit in 1,280
+ * counters; longer ones land in the last bucket.
+ *
+ * Recording is a bucket computation and one atomic increment (plus an add to
+ * a striped sum): no locks and no allocation, so it can sit on the booking
+ * path. Reading takes a {@link Snapshot}; a snapshot taken while values are
+ * being recorded may miss the newest of them, but is otherwise consistent.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 43;   // highest power of two tracked
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // Record the time elapsed since startNanos (a System.nanoTime() reading)
+    void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) max = maxNanos.get();
+    }
+
+    // Forget everything recorded so far (values recorded meanwhile may survive)
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += c[i] = counts.get(i);
+        return new Snapshot(c, n, totalNanos.sum(), maxNanos.get());
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB + (int) (nanos >>> shift) - SUB;
+    }
+
+    // Largest value that falls into the bucket
+    static long highestIn(int bucket) {
+        if (bucket < SUB) return bucket;
+        int shift = bucket / SUB - 1;
+        long lowest = (long) (SUB + bucket % SUB) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    // Counts of one histogram at one moment
+    static final class Snapshot {
+        private final long[] counts;
+        final long count;
+        final long totalNanos;
+        final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Value at the percentile (0..100): the top of the bucket holding it,
+         * capped at the largest value recorded; 0 when empty.
+         */
+        long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestIn(i), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%,d calls, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+                    count, percentile(50) / 1e3, percentile(99) / 1e3, percentile(99.9) / 1e3, maxNanos / 1e3);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * LoadDriver.java
+ * End-to-end load test of ReservationService: mixed operations from many threads
+ *
+ * Run (after 'mvn compile'):
+ *   mvn exec:java -Dexec.mainClass="com.pukazhya.oibsip.task1.LoadDriver" \
+ *       -Dexec.args="file=big.csv threads=16 seconds=30 mix=book:10,cancel:2,pnr:60,name:28"
+ *
+ * Arguments (key=value, all optional):
+ *   file       data file to start from; generated with {@link DatasetGenerator} if missing
+ *   rows       rows to generate when the file is missing (default 1,000,000)
+ *   threads    worker threads (default 8)
+ *   warmup     seconds run before measuring (default 5)
+ *   seconds    measured seconds (default 20)
+ *   mix        relative weights of book, cancel, pnr (lookup) and name (search)
+ *   durability FIRE_AND_FORGET | WAIT_FOR_WRITE | WAIT_FOR_FSYNC for book/cancel
+ *   seed       random seed (default 42); workers use seed + thread number
+ *
+ * The data file is copied to a temporary directory first, so every run starts
+ * from the same state and the original is never changed. Latencies are
+ * wall-clock per call; the report lists throughput and percentiles per
+ * operation in a fixed layout so runs can be diffed.
+ */
+public class LoadDriver {
+    enum Op { BOOK, CANCEL, PNR, NAME }
+
+    private static final String[] CLASSES = {"Sleeper", "AC 3-tier", "General", "AC 2-tier", "AC 1st"};
+
+    private final ReservationService service;
+    private final List<TrainRoute> routes;
+    private final int[] mix;                      // cumulative weights by Op ordinal
+    private final JournalWriter.Durability durability;
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private LoadDriver(ReservationService service, int[] weights, JournalWriter.Durability durability) {
+        this.service = service;
+        this.routes = new ArrayList<>();
+        for (String trainNo : service.getTrains().keySet()) routes.add(service.getRoute(trainNo));
+        this.mix = new int[weights.length];
+        for (int i = 0, sum = 0; i < weights.length; i++) mix[i] = sum += weights[i];
+        if (mix[mix.length - 1] <= 0) throw new IllegalArgumentException("mix needs a positive weight");
+        this.durability = durability;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path file = Paths.get(arg(args, "file", "loadtest.csv"));
+        long rows = Long.parseLong(arg(args, "rows", "1000000"));
+        int threads = Integer.parseInt(arg(args, "threads", "8"));
+        int warmup = Integer.parseInt(arg(args, "warmup", "5"));
+        int seconds = Integer.parseInt(arg(args, "seconds", "20"));
+        int[] weights = parseMix(arg(args, "mix", "book:10,cancel:2,pnr:60,name:28"));
+        JournalWriter.Durability durability = JournalWriter.Durability.valueOf(arg(args, "durability", ReservationService.DEFAULT_DURABILITY.name()));
+        long seed = Long.parseLong(arg(args, "seed", "42"));
+
+        if (!Files.exists(file)) {
+            System.out.printf(Locale.US, "Generating %,d rows into %s%n", rows, file);
+            DatasetGenerator.generate(file, rows, seed, LocalDate.now().minusDays(365));
+        }
+        Path dir = Files.createTempDirectory("reservation-load");
+        Path copy = dir.resolve("reservations.csv");
+        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+        Path routesFile = file.resolveSibling(RouteCatalog.FILE_NAME);
+        if (Files.exists(routesFile)) Files.copy(routesFile, dir.resolve(RouteCatalog.FILE_NAME));
+
+        ReservationService service = new ReservationService(copy);
+        try {
+            LoadDriver driver = new LoadDriver(service, weights, durability);
+            System.out.printf(Locale.US, "%,d rows, %d threads, mix %s, %s, %d s warm-up + %d s measured%n",
+                    service.getStats().getTotal(), threads, arg(args, "mix", "book:10,cancel:2,pnr:60,name:28"), durability, warmup, seconds);
+            driver.run(threads, warmup, seconds, seed);
+            System.out.println("journal: " + service.persistenceMetrics());
+            System.out.println("fares:   " + service.fareCacheStats());
+            System.out.print("service latencies (whole run, warm-up included):\n" + service.latencyMetrics().report());
+        } finally {
+            service.close();
+            deleteTree(dir);
+        }
+    }
+
+    private void run(int threads, int warmup, int seconds, long seed) throws InterruptedException {
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(new SplittableRandom(seed + t));
+            workers[t].setName("load-" + t);
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+        Thread.sleep(warmup * 1000L);
+        measuring = true;
+        long t0 = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        stopped = true;
+        long elapsed = System.nanoTime() - t0;
+        for (Worker w : workers) w.join();
+        report(workers, elapsed);
+    }
+
+    private void report(Worker[] workers, long elapsedNanos) {
+        double secs = elapsedNanos / 1e9;
+        long all = 0;
+        System.out.printf(Locale.US, "%-7s %10s %10s %9s %9s %9s %9s %9s  %s%n",
+                "op", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "notes");
+        for (Op op : Op.values()) {
+            LatencyLog merged = new LatencyLog();
+            long misses = 0;
+            for (Worker w : workers) {
+                merged.addAll(w.logs[op.ordinal()]);
+                misses += w.misses[op.ordinal()];
+            }
+            all += merged.size;
+            if (merged.size == 0) {
+                System.out.printf(Locale.US, "%-7s %10d%n", op.name().toLowerCase(Locale.ROOT), 0);
+                continue;
+            }
+            long[] v = merged.sorted();
+            System.out.printf(Locale.US, "%-7s %,10d %,10.0f %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    op.name().toLowerCase(Locale.ROOT), v.length, v.length / secs,
+                    pct(v, 50) / 1e3, pct(v, 90) / 1e3, pct(v, 99) / 1e3, pct(v, 99.9) / 1e3, v[v.length - 1] / 1e3,
+                    misses == 0 ? "" : String.format(Locale.US, "%,d %s", misses, missLabel(op)));
+        }
+        System.out.printf(Locale.US, "total   %,10d %,10.0f ops/s over %.1f s%n", all, all / secs, secs);
+    }
+
+    private static String missLabel(Op op) {
+        switch (op) {
+            case BOOK: return "sold out";
+            case CANCEL: return "already cancelled";
+            case PNR: return "not found";
+            default: return "empty results";
+        }
+    }
+
+    private static long pct(long[] sorted, double p) {
+        int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    private final class Worker extends Thread {
+        final SplittableRandom rnd;
+        final LatencyLog[] logs = new LatencyLog[Op.values().length];
+        final long[] misses = new long[Op.values().length];
+
+        Worker(SplittableRandom rnd) {
+            this.rnd = rnd;
+            for (int i = 0; i < logs.length; i++) logs[i] = new LatencyLog();
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                Op op = choose(rnd.nextInt(mix[mix.length - 1]));
+                long t0 = System.nanoTime();
+                boolean hit = execute(op);
+                long took = System.nanoTime() - t0;
+                if (measuring && !stopped) {
+                    logs[op.ordinal()].add(took);
+                    if (!hit) misses[op.ordinal()]++;
+                }
+            }
+        }
+
+        private boolean execute(Op op) {
+            switch (op) {
+                case BOOK: {
+                    TrainRoute route = routes.get(rnd.nextInt(routes.size()));
+                    List<String> stops = route.getStops();
+                    int a = rnd.nextInt(stops.size() - 1);
+                    int b = a + 1 + rnd.nextInt(stops.size() - 1 - a);
+                    String name = DatasetGenerator.FIRST_NAMES[rnd.nextInt(DatasetGenerator.FIRST_NAMES.length)] + " "
+                            + DatasetGenerator.LAST_NAMES[rnd.nextInt(DatasetGenerator.LAST_NAMES.length)];
+                    return service.book(name, 18 + rnd.nextInt(60), route.getTrainNo(), route.getName(),
+                            CLASSES[rnd.nextInt(CLASSES.length)], stops.get(a), stops.get(b),
+                            LocalDate.now().plusDays(1 + rnd.nextInt(60)), SeatInventory.Berth.ANY, durability) != null;
+                }
+                case CANCEL: {
+                    String pnr = randomPnr();
+                    return pnr != null && service.cancel(pnr, "load test", durability);
+                }
+                case PNR: {
+                    String pnr = randomPnr();
+                    return pnr != null && service.findByPNR(pnr) != null;
+                }
+                default: {
+                    String q = DatasetGenerator.FIRST_NAMES[rnd.nextInt(DatasetGenerator.FIRST_NAMES.length)];
+                    if (rnd.nextBoolean()) q += " " + DatasetGenerator.LAST_NAMES[rnd.nextInt(DatasetGenerator.LAST_NAMES.length)].substring(0, 3);
+                    return !service.findByName(q).isEmpty();
+                }
+            }
+        }
+
+        private String randomPnr() {
+            PartitionedView v = service.currentView();
+            return v.size() == 0 ? null : v.pnr(rnd.nextInt(v.size()));
+        }
+    }
+
+    private Op choose(int x) {
+        for (int i = 0; i < mix.length; i++) if (x < mix[i]) return Op.values()[i];
+        return Op.NAME;
+    }
+
+    // Growable array of nanosecond latencies
+    private static final class LatencyLog {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void addAll(LatencyLog other) {
+            if (size + other.size > values.length) values = Arrays.copyOf(values, Math.max(size + other.size, values.length * 2));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        long[] sorted() {
+            long[] out = Arrays.copyOf(values, size);
+            Arrays.sort(out);
+            return out;
+        }
+    }
+
+    static int[] parseMix(String spec) {
+        int[] w = new int[Op.values().length];
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) throw new IllegalArgumentException("mix entries look like book:10, got " + part);
+            w[Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        return w;
+    }
+
+    private static String arg(String[] args, String key, String def) {
+        for (String a : args) {
+            if (a.startsWith(key + "=")) return a.substring(key.length() + 1);
+        }
+        return def;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(p);
+        }
+    }
+}
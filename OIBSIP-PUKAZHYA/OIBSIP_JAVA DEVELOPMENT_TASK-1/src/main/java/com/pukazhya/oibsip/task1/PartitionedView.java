@@ -0,0 +1,150 @@
+package com.pukazhya.oibsip.task1;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * PartitionedView.java
+ * Immutable view of every month partition at once, numbered as one table
+ *
+ * Holds the published {@link ReservationStore.View} of each partition, oldest
+ * month first. Rows are numbered month by month and in booking order within a
+ * month, so row numbers are contiguous like those of a single store view.
+ * Reads hold no lock; a row number is resolved to its month by a binary search
+ * over the (few) month start rows.
+ *
+ * A booking in any month but the last moves the rows of later months down.
+ * Readers that follow the service from view to view (the table model) use
+ * {@link #continues}, {@link #forEachChanged}, {@link #forEachAppended},
+ * {@link #forEachMoved} and {@link #rowIn} to translate between an older view's
+ * numbering and this one.
+ */
+final class PartitionedView {
+    static final PartitionedView EMPTY = new PartitionedView(new YearMonth[0], new ReservationStore.View[0]);
+
+    // Rows [first, last] of this view, both inclusive
+    interface RowRange {
+        void accept(int first, int last);
+    }
+
+    // length rows at olderStart in the older view are at start in this one
+    interface RowMove {
+        void accept(int olderStart, int start, int length);
+    }
+
+    private final YearMonth[] months;
+    private final ReservationStore.View[] parts;
+    private final int[] start;   // first row of each month; start[parts.length] = size
+
+    PartitionedView(YearMonth[] months, ReservationStore.View[] parts) {
+        this.months = months;
+        this.parts = parts;
+        this.start = new int[parts.length + 1];
+        for (int i = 0; i < parts.length; i++) start[i + 1] = start[i] + parts[i].size();
+    }
+
+    int size() { return start[parts.length]; }
+
+    Reservation get(int row) { int p = part(row); return parts[p].get(row - start[p]); }
+    String pnr(int row) { int p = part(row); return parts[p].pnr(row - start[p]); }
+    String name(int row) { int p = part(row); return parts[p].name(row - start[p]); }
+    String status(int row) { int p = part(row); return parts[p].status(row - start[p]); }
+    String trainNo(int row) { int p = part(row); return parts[p].trainNo(row - start[p]); }
+    String trainName(int row) { int p = part(row); return parts[p].trainName(row - start[p]); }
+    String classType(int row) { int p = part(row); return parts[p].classType(row - start[p]); }
+    String from(int row) { int p = part(row); return parts[p].from(row - start[p]); }
+    String to(int row) { int p = part(row); return parts[p].to(row - start[p]); }
+    String seat(int row) { int p = part(row); return parts[p].seat(row - start[p]); }
+    long travelEpochDay(int row) { int p = part(row); return parts[p].travelEpochDay(row - start[p]); }
+    double fare(int row) { int p = part(row); return parts[p].fare(row - start[p]); }
+
+    boolean isCancelled(int row) {
+        return "Cancelled".equalsIgnoreCase(status(row));
+    }
+
+    /**
+     * True when every month of the older view is still here and continues its
+     * older store view (new months may have appeared): rows of the older view
+     * are still present, possibly moved by rows added to earlier months.
+     */
+    boolean continues(PartitionedView older) {
+        int[] match = match(older);
+        int found = 0;
+        for (int j = 0; j < parts.length; j++) {
+            if (match[j] < 0) continue;
+            if (!parts[j].continues(older.parts[match[j]])) return false;
+            found++;
+        }
+        return found == older.parts.length;
+    }
+
+    /**
+     * Rows present in both views whose status, seat or cancel reason differ, in
+     * ascending order of this view's numbering. This view must {@link #continues}
+     * the older one.
+     */
+    void forEachChanged(PartitionedView older, IntConsumer action) {
+        int[] match = match(older);
+        for (int j = 0; j < parts.length; j++) {
+            if (match[j] < 0) continue;
+            int base = start[j];
+            parts[j].forEachChanged(older.parts[match[j]], row -> action.accept(base + row));
+        }
+    }
+
+    // Rows added since the older view, as one range per month, ascending
+    void forEachAppended(PartitionedView older, RowRange action) {
+        int[] match = match(older);
+        for (int j = 0; j < parts.length; j++) {
+            int had = match[j] < 0 ? 0 : older.parts[match[j]].size();
+            if (parts[j].size() > had) action.accept(start[j] + had, start[j + 1] - 1);
+        }
+    }
+
+    // Where each month's rows of the older view are now, ascending
+    void forEachMoved(PartitionedView older, RowMove action) {
+        int[] match = match(older);
+        for (int j = 0; j < parts.length; j++) {
+            int k = match[j];
+            if (k >= 0 && older.parts[k].size() > 0) action.accept(older.start[k], start[j], older.parts[k].size());
+        }
+    }
+
+    // True when some row of the older view has a different number here
+    boolean movedSince(PartitionedView older) {
+        int[] match = match(older);
+        for (int j = 0; j < parts.length; j++) {
+            if (match[j] >= 0 && older.start[match[j]] != start[j] && older.parts[match[j]].size() > 0) return true;
+        }
+        return false;
+    }
+
+    // Number in the older view of a row of this view, or -1 if it was added since
+    int rowIn(PartitionedView older, int row) {
+        int j = part(row);
+        int k = Arrays.binarySearch(older.months, months[j]);
+        if (k < 0) return -1;
+        int local = row - start[j];
+        return local < older.parts[k].size() ? older.start[k] + local : -1;
+    }
+
+    // For each month of this view, the index of the same month in the older view, or -1
+    private int[] match(PartitionedView older) {
+        int[] out = new int[parts.length];
+        for (int j = 0, k = 0; j < parts.length; j++) {
+            while (k < older.months.length && older.months[k].isBefore(months[j])) k++;
+            out[j] = k < older.months.length && older.months[k].equals(months[j]) ? k : -1;
+        }
+        return out;
+    }
+
+    // Month holding the row
+    private int part(int row) {
+        if (row < 0 || row >= size()) throw new IndexOutOfBoundsException("row " + row + " of " + size());
+        int i = Arrays.binarySearch(start, 0, parts.length, row);
+        if (i < 0) return -i - 2;
+        while (i + 1 < parts.length && start[i + 1] == row) i++;   // skip empty months
+        return i;
+    }
+}
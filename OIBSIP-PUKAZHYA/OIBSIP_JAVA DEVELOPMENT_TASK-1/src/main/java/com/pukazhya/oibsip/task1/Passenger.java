@@ -1 +1,18 @@
-package com.oibsip.reservation;
+package com.pukazhya.oibsip.task1;
+
+/**
+ * Passenger.java
+ * Name and age of the person a booking is for
+ */
+class Passenger {
+    private final String name;
+    private final int age;
+
+    Passenger(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    String getName() { return name; }
+    int getAge() { return age; }
+}
@@ -0,0 +1,92 @@
+package com.pukazhya.oibsip.task1;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PnrGenerator.java
+ * Unique-by-construction PNRs: "PZ" + node + 11-character counter
+ *
+ * The counter packs milliseconds since 2024-01-01 (UTC) above a 13-bit
+ * sequence, and each PNR takes the next value with one compare-and-set:
+ * max(last + 1, now << 13). Values therefore never repeat within a process,
+ * follow the clock, and absorb bursts of 8192 PNRs per millisecond before
+ * running ahead of it (they then catch up on their own). The node character
+ * keeps processes that share a data file apart.
+ *
+ * Both parts use the alphabet without look-alikes (no I, L, O, 0, 1), so a
+ * PNR is 14 characters, e.g. "PZA3K7QW9ZC2MT". Older PNRs (18 characters,
+ * timestamp plus random suffix) can never be produced again. No lookup of
+ * existing reservations and no lock is involved.
+ *
+ * After a restart {@link #observe} raises the counter past PNRs already
+ * issued, in case the clock was set back in between.
+ */
+final class PnrGenerator {
+    static final String ALPHABET = "ABCDEFGHJKMNPQRSTUVWXYZ23456789";
+    static final int MAX_NODE = ALPHABET.length() - 1;
+
+    private static final String PREFIX = "PZ";
+    private static final int DIGITS = 11;            // 31^11 > 2^54
+    private static final int SEQ_BITS = 13;
+    private static final long EPOCH_MILLIS = LocalDateTime.of(2024, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    private static final int BASE = ALPHABET.length();
+    private static final int LENGTH = PREFIX.length() + 1 + DIGITS;
+
+    private final char node;
+    private final AtomicLong last = new AtomicLong();
+
+    PnrGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) throw new IllegalArgumentException("PNR node must be 0.." + MAX_NODE + ": " + nodeId);
+        this.node = ALPHABET.charAt(nodeId);
+    }
+
+    // Next PNR; safe from any thread
+    String next() {
+        return nextAt(System.currentTimeMillis());
+    }
+
+    // Next PNR for a given clock reading (dataset generation replays a synthetic clock)
+    String nextAt(long epochMillis) {
+        long floor = (epochMillis - EPOCH_MILLIS) << SEQ_BITS;
+        long cur, v;
+        do {
+            cur = last.get();
+            v = Math.max(cur + 1, floor);
+        } while (!last.compareAndSet(cur, v));
+        return encode(v);
+    }
+
+    // Raise the counter past a PNR issued earlier by this node; other PNRs are ignored
+    void observe(String pnr) {
+        long v = decode(pnr);
+        if (v < 0) return;
+        long cur;
+        while ((cur = last.get()) < v && !last.compareAndSet(cur, v)) { /* retry */ }
+    }
+
+    private String encode(long v) {
+        char[] out = new char[LENGTH];
+        out[0] = 'P';
+        out[1] = 'Z';
+        out[2] = node;
+        for (int i = LENGTH - 1; i > 2; i--) {
+            out[i] = ALPHABET.charAt((int) (v % BASE));
+            v /= BASE;
+        }
+        return new String(out);
+    }
+
+    // Counter value of a PNR generated by this node, or -1
+    private long decode(String pnr) {
+        if (pnr == null || pnr.length() != LENGTH || !pnr.startsWith(PREFIX) || pnr.charAt(2) != node) return -1;
+        long v = 0;
+        for (int i = 3; i < LENGTH; i++) {
+            int d = ALPHABET.indexOf(pnr.charAt(i));
+            if (d < 0) return -1;
+            v = v * BASE + d;
+        }
+        return v;
+    }
+}
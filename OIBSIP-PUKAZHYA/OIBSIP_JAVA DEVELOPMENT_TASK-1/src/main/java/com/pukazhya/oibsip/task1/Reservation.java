@@ -1 +1,63 @@
-package com.oibsip.reservation;
+package com.pukazhya.oibsip.task1;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Reservation.java
+ * One booking: passenger, journey, fare and status
+ */
+final class Reservation {
+    private final String pnr;
+    private final Passenger passenger;
+    private final String trainNo;
+    private final String trainName;
+    private final String classType;
+    private final String from;
+    private final String to;
+    private final LocalDateTime bookingTime;
+    private final LocalDate travelDate;
+    private final double fare;
+    private final String status;
+    private final String cancelReason;
+    private final String seat;
+
+    Reservation(String pnr, Passenger passenger, String trainNo, String trainName, String classType,
+                String from, String to, LocalDateTime bookingTime, LocalDate travelDate, double fare,
+                String status, String cancelReason) {
+        this(pnr, passenger, trainNo, trainName, classType, from, to, bookingTime, travelDate, fare, status, cancelReason, "");
+    }
+
+    Reservation(String pnr, Passenger passenger, String trainNo, String trainName, String classType,
+                String from, String to, LocalDateTime bookingTime, LocalDate travelDate, double fare,
+                String status, String cancelReason, String seat) {
+        this.pnr = pnr;
+        this.passenger = passenger;
+        this.trainNo = trainNo;
+        this.trainName = trainName;
+        this.classType = classType;
+        this.from = from;
+        this.to = to;
+        this.bookingTime = bookingTime;
+        this.travelDate = travelDate;
+        this.fare = fare;
+        this.status = status;
+        this.cancelReason = cancelReason == null ? "" : cancelReason;
+        this.seat = seat == null ? "" : seat;
+    }
+
+    String getPnr() { return pnr; }
+    Passenger getPassenger() { return passenger; }
+    String getTrainNo() { return trainNo; }
+    String getTrainName() { return trainName; }
+    String getClassType() { return classType; }
+    String getFrom() { return from; }
+    String getTo() { return to; }
+    LocalDateTime getBookingTime() { return bookingTime; }
+    LocalDate getTravelDate() { return travelDate; }
+    double getFare() { return fare; }
+    String getStatus() { return status; }
+    String getCancelReason() { return cancelReason; }
+    // Berth label such as "B3-42"; empty for rows booked before seats were tracked
+    String getSeat() { return seat; }
+}
@@ -0,0 +1,567 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * ReservationArchive.java
+ * Cold tier: completed journeys in immutable, compressed, month-partitioned
+ * segment files, found by PNR through a sorted on-disk index
+ *
+ * Files, in "reservations.csv.archive/":
+ *   manifest        committed state (properties): run generation, cutoff day,
+ *                   segment files, index file, row counts per status and class
+ *   yyyy-MM.N.seg   rows travelling in that month, archived as segment N:
+ *                   "PZAR", version, then blocks of up to BLOCK_ROWS CSV rows,
+ *                   each [raw length:4][deflated length:4][deflated bytes]
+ *   pnr.G.idx       every archived PNR as of run G: "PZAX", version, count, then
+ *                   16-byte entries [PNR hash:8][segment:4][block offset:4]
+ *                   sorted by hash
+ *
+ * A lookup is a binary search of the memory-mapped index (the OS pages it in;
+ * nothing of it lives on the Java heap) and one block read and inflate per
+ * hash match. Segments are never modified: a run writes new segments and a new
+ * merged index, then commits by replacing the manifest, so a crash leaves the
+ * previous state intact; unreferenced files are deleted on the next open.
+ *
+ * Thread-safe: lookups read an immutable state published through a volatile
+ * field; stage/commit are called by one archiving thread at a time.
+ */
+final class ReservationArchive {
+    static final String DIR_SUFFIX = ".archive";
+    static final int BLOCK_ROWS = 64;
+
+    private static final int SEGMENT_MAGIC = 0x505A4152;   // "PZAR"
+    private static final int INDEX_MAGIC = 0x505A4158;     // "PZAX"
+    private static final int VERSION = 1;
+    private static final int INDEX_HEADER = 4 + 4 + 8;
+    private static final int ENTRY = 16;
+    private static final String MANIFEST = "manifest";
+
+    private final Path dir;
+    private volatile State state;
+    // segments are immutable, so their channels stay open for positional reads from any thread
+    private final ConcurrentMap<Path,FileChannel> open = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private ReservationArchive(Path dir, State state) {
+        this.dir = dir;
+        this.state = state;
+    }
+
+    // Archive next to the data file; empty if it has none yet
+    static ReservationArchive open(Path dataFile) throws IOException {
+        Path dir = dataFile.resolveSibling(dataFile.getFileName() + DIR_SUFFIX);
+        Path manifest = dir.resolve(MANIFEST);
+        ReservationArchive a = new ReservationArchive(dir, Files.exists(manifest) ? readManifest(dir, manifest) : State.EMPTY);
+        a.removeStrays();
+        return a;
+    }
+
+    // Completed archiving runs; changes whenever rows leave the live set
+    int generation() { return state.generation; }
+
+    // Rows travelling before this epoch day were archived (Long.MIN_VALUE before the first run)
+    long cutoffDay() { return state.cutoffDay; }
+
+    long size() { return state.count; }
+
+    // Archived rows per status (lower-cased) and per class
+    Map<String,Integer> statusCounts() { return state.statusCounts; }
+    Map<String,Integer> classCounts() { return state.classCounts; }
+
+    /**
+     * The archived reservation with this PNR (case-insensitive), or null.
+     * Should a PNR have been archived twice, the later copy wins.
+     */
+    Reservation find(String pnr) throws IOException {
+        State s = state;
+        if (pnr == null || s.count == 0) return null;
+        byte[] key = pnr.trim().getBytes(StandardCharsets.UTF_8);
+        long h = hash(key);
+        Reservation found = null;
+        for (long i = lowerBound(s.index, s.count, h); i < s.count && entryHash(s.index, i) == h; i++) {
+            byte[] block = readBlock(s, entryLocation(s.index, i));
+            int at = findRow(block, key);
+            if (at >= 0) found = decode(block, at);
+        }
+        return found;
+    }
+
+    /**
+     * Which of the PNRs are archived: like find() for each, but every block is
+     * read once however many of the PNRs it holds (used to reconcile a live set
+     * that still contains archived rows).
+     */
+    boolean[] containsAll(List<String> pnrs) throws IOException {
+        State s = state;
+        boolean[] out = new boolean[pnrs.size()];
+        if (s.count == 0) return out;
+        Map<Long,List<Integer>> byBlock = new TreeMap<>();   // file order
+        byte[][] keys = new byte[pnrs.size()][];
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = pnrs.get(k).trim().getBytes(StandardCharsets.UTF_8);
+            long h = hash(keys[k]);
+            for (long i = lowerBound(s.index, s.count, h); i < s.count && entryHash(s.index, i) == h; i++) {
+                byBlock.computeIfAbsent(entryLocation(s.index, i), x -> new ArrayList<>()).add(k);
+            }
+        }
+        for (Map.Entry<Long,List<Integer>> e : byBlock.entrySet()) {
+            byte[] block = readBlock(s, e.getKey());
+            for (int k : e.getValue()) out[k] |= findRow(block, keys[k]) >= 0;
+        }
+        return out;
+    }
+
+    // Close the open segment files; lookups fail afterwards
+    void close() {
+        closed = true;
+        for (FileChannel ch : open.values()) {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                // read-only; nothing to lose
+            }
+        }
+        open.clear();
+    }
+
+    /* ----------------------------
+       Archiving run: stage (slow, no lock), then commit or abandon
+       ---------------------------- */
+
+    // Files written by stage() and the state they become once committed
+    static final class Pending {
+        private final State next;
+        private final List<Path> files;
+
+        private Pending(State next, List<Path> files) {
+            this.next = next;
+            this.files = files;
+        }
+    }
+
+    /**
+     * Write the given rows of the view (ascending) into new segments, one per
+     * travel month, and a new index covering them and everything archived
+     * before. Nothing is visible until {@link #commit}.
+     */
+    Pending stage(ReservationStore.View v, int[] rows, long cutoffDay) throws IOException {
+        State s = state;
+        Files.createDirectories(dir);
+        int n = rows.length;
+        long[] byMonth = new long[n];   // [month:32][row:32], so rows stay in order within a month
+        for (int i = 0; i < n; i++) {
+            LocalDate d = LocalDate.ofEpochDay(v.travelEpochDay(rows[i]));
+            byMonth[i] = (long) (d.getYear() * 12 + d.getMonthValue() - 1) << 32 | rows[i];
+        }
+        Arrays.sort(byMonth);
+
+        List<Path> files = new ArrayList<>();
+        Map<Integer,Path> segments = new TreeMap<>(s.segments);
+        Map<String,Integer> statusCounts = new HashMap<>(s.statusCounts);
+        Map<String,Integer> classCounts = new HashMap<>(s.classCounts);
+        long[] hashes = new long[n];
+        long[] locations = new long[n];   // [segment:32][block offset:32]
+        int nextSegment = s.nextSegment;
+        try {
+            for (int i = 0; i < n; ) {
+                int month = (int) (byMonth[i] >>> 32);
+                int j = i;
+                while (j < n && (int) (byMonth[j] >>> 32) == month) j++;
+                int number = nextSegment++;
+                Path name = Path.of(String.format(Locale.ROOT, "%04d-%02d.%d.seg", month / 12, month % 12 + 1, number));
+                files.add(dir.resolve(name));
+                writeSegment(dir.resolve(name), v, byMonth, i, j, number, hashes, locations);
+                segments.put(number, name);
+                i = j;
+            }
+            for (int row : rows) {
+                statusCounts.merge(v.status(row).toLowerCase(Locale.ROOT), 1, Integer::sum);
+                classCounts.merge(v.classType(row), 1, Integer::sum);
+            }
+            sortByHash(hashes, locations, 0, n - 1);
+            int generation = s.generation + 1;
+            Path index = Path.of("pnr." + generation + ".idx");
+            files.add(dir.resolve(index));
+            long count = writeIndex(dir.resolve(index), s, hashes, locations);
+            State next = new State(generation, Math.max(s.cutoffDay, cutoffDay), index, null, count, segments, nextSegment,
+                    statusCounts, classCounts);
+            return new Pending(next, files);
+        } catch (IOException | RuntimeException e) {
+            for (Path f : files) Files.deleteIfExists(f);
+            throw e;
+        }
+    }
+
+    // Make a staged run visible (atomic manifest replace), then drop the superseded index
+    void commit(Pending p) throws IOException {
+        State prev = state;
+        State next = p.next.withIndex(map(dir.resolve(p.next.indexFile), p.next.count));
+        writeManifest(next);
+        state = next;
+        if (prev.indexFile != null) deleteQuietly(dir.resolve(prev.indexFile));
+    }
+
+    // Throw a staged run away
+    void abandon(Pending p) {
+        for (Path f : p.files) deleteQuietly(f);
+    }
+
+    /* ----------------------------
+       Segments
+       ---------------------------- */
+
+    private static void writeSegment(Path file, ReservationStore.View v, long[] byMonth, int from, int to, int number,
+                                     long[] hashes, long[] locations) throws IOException {
+        ReservationCodec codec = new ReservationCodec();
+        StringBuilder text = new StringBuilder(BLOCK_ROWS * 160);
+        Deflater deflater = new Deflater();
+        byte[] packed = new byte[64 * 1024];
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(VERSION);
+            for (int b = from; b < to; b += BLOCK_ROWS) {
+                int end = Math.min(to, b + BLOCK_ROWS);
+                int offset = out.size();
+                if (offset < 0) throw new IOException("Archive segment over 2 GB: " + file);
+                text.setLength(0);
+                for (int i = b; i < end; i++) {
+                    int row = (int) byMonth[i];
+                    codec.append(v.get(row), text);
+                    text.append('\n');
+                    hashes[i] = hash(v.pnr(row).trim().getBytes(StandardCharsets.UTF_8));
+                    locations[i] = (long) number << 32 | offset;
+                }
+                byte[] raw = text.toString().getBytes(StandardCharsets.UTF_8);
+                deflater.reset();
+                deflater.setInput(raw);
+                deflater.finish();
+                int len = 0;
+                while (!deflater.finished()) {
+                    if (len == packed.length) packed = Arrays.copyOf(packed, packed.length * 2);
+                    len += deflater.deflate(packed, len, packed.length - len);
+                }
+                out.writeInt(raw.length);
+                out.writeInt(len);
+                out.write(packed, 0, len);
+            }
+            out.flush();
+            ch.force(true);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Inflated rows of the block at a [segment:32][offset:32] location
+    private byte[] readBlock(State s, long location) throws IOException {
+        Path name = s.segments.get((int) (location >>> 32));
+        if (name == null) throw new IOException("Archive index names a missing segment " + (location >>> 32));
+        Path segment = dir.resolve(name);
+        FileChannel ch = channel(segment);
+        long offset = (int) location;
+        ByteBuffer head = ByteBuffer.allocate(8);
+        readFully(ch, head, offset);
+        int rawLen = head.getInt(0), packedLen = head.getInt(4);
+        if (rawLen < 0 || packedLen < 0 || offset + 8L + packedLen > ch.size()) throw new IOException("Corrupt archive block in " + segment);
+        ByteBuffer packed = ByteBuffer.allocate(packedLen);
+        readFully(ch, packed, offset + 8L);
+        byte[] raw = new byte[rawLen];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed.array());
+            if (inflater.inflate(raw) != rawLen) throw new IOException("Truncated archive block in " + segment);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block in " + segment, e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private FileChannel channel(Path segment) throws IOException {
+        FileChannel ch = open.get(segment);
+        if (ch != null) return ch;
+        if (closed) throw new IOException("Archive closed");
+        ch = FileChannel.open(segment, StandardOpenOption.READ);
+        FileChannel raced = open.putIfAbsent(segment, ch);
+        if (raced == null) return ch;
+        ch.close();
+        return raced;
+    }
+
+    // Start of the row with the PNR in an inflated block, or -1 (rows start with the PNR field)
+    private static int findRow(byte[] raw, byte[] key) {
+        for (int start = 0; start < raw.length; ) {
+            int end = start;
+            while (end < raw.length && raw[end] != '\n') end++;
+            if (startsWithField(raw, start, end, key)) return start;
+            start = end + 1;
+        }
+        return -1;
+    }
+
+    private static Reservation decode(byte[] raw, int start) throws IOException {
+        int end = start;
+        while (end < raw.length && raw[end] != '\n') end++;
+        ReservationCodec codec = new ReservationCodec();
+        Reservation r = codec.parse(ByteBuffer.wrap(raw), start, end);
+        if (r == null) throw new IOException("Corrupt archived row: " + codec.error());
+        return r;
+    }
+
+    private static boolean startsWithField(byte[] b, int start, int end, byte[] key) {
+        if (end - start <= key.length || b[start + key.length] != ',') return false;
+        for (int i = 0; i < key.length; i++) {
+            if (upper(b[start + i]) != upper(key[i])) return false;
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+        while (b.hasRemaining()) {
+            int n = ch.read(b, pos + b.position());
+            if (n < 0) throw new IOException("Unexpected end of archive file");
+        }
+    }
+
+    /* ----------------------------
+       PNR index
+       ---------------------------- */
+
+    // Merge the previous index with the new (sorted) entries; previous entries first on equal hashes
+    private static long writeIndex(Path file, State prev, long[] hashes, long[] locations) throws IOException {
+        long count = prev.count + hashes.length;
+        if (INDEX_HEADER + count * ENTRY > Integer.MAX_VALUE) throw new IOException("Archive index full (" + count + " rows)");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(count);
+            long i = 0;
+            int j = 0;
+            while (i < prev.count || j < hashes.length) {
+                if (j == hashes.length || (i < prev.count && entryHash(prev.index, i) <= hashes[j])) {
+                    int at = (int) (INDEX_HEADER + i * ENTRY);
+                    out.writeLong(prev.index.getLong(at));
+                    out.writeLong(prev.index.getLong(at + 8));
+                    i++;
+                } else {
+                    out.writeLong(hashes[j]);
+                    out.writeLong(locations[j]);
+                    j++;
+                }
+            }
+            out.flush();
+            ch.force(true);
+        }
+        return count;
+    }
+
+    private static MappedByteBuffer map(Path file, long count) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() != INDEX_HEADER + count * ENTRY) throw new IOException("Archive index has the wrong size: " + file);
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (m.getInt(0) != INDEX_MAGIC || m.getInt(4) != VERSION || m.getLong(8) != count) {
+                throw new IOException("Not a matching archive index: " + file);
+            }
+            return m;
+        }
+    }
+
+    private static long entryHash(ByteBuffer index, long i) {
+        return index.getLong((int) (INDEX_HEADER + i * ENTRY));
+    }
+
+    private static long entryLocation(ByteBuffer index, long i) {
+        return index.getLong((int) (INDEX_HEADER + i * ENTRY + 8));
+    }
+
+    // First entry whose hash is >= h
+    private static long lowerBound(ByteBuffer index, long count, long h) {
+        long lo = 0, hi = count;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (entryHash(index, mid) < h) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // 64-bit FNV-1a over the upper-cased PNR bytes (lookups ignore case)
+    static long hash(byte[] pnr) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : pnr) h = (h ^ upper(b)) * 0x100000001B3L;
+        return h;
+    }
+
+    private static int upper(byte b) {
+        return b >= 'a' && b <= 'z' ? b - 32 : b;
+    }
+
+    // Quicksort of the parallel arrays by hash (insertion sort for short runs)
+    private static void sortByHash(long[] h, long[] loc, int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = h[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (h[i] < pivot) i++;
+                while (h[j] > pivot) j--;
+                if (i <= j) swap(h, loc, i++, j--);
+            }
+            // recurse into the smaller side, loop on the larger
+            if (j - lo < hi - i) {
+                sortByHash(h, loc, lo, j);
+                lo = i;
+            } else {
+                sortByHash(h, loc, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int k = i; k > lo && h[k - 1] > h[k]; k--) swap(h, loc, k, k - 1);
+        }
+    }
+
+    private static void swap(long[] h, long[] loc, int a, int b) {
+        long t = h[a]; h[a] = h[b]; h[b] = t;
+        t = loc[a]; loc[a] = loc[b]; loc[b] = t;
+    }
+
+    /* ----------------------------
+       Manifest
+       ---------------------------- */
+
+    private void writeManifest(State s) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("generation", Integer.toString(s.generation));
+        p.setProperty("cutoff", LocalDate.ofEpochDay(s.cutoffDay).toString());
+        p.setProperty("index", s.indexFile.toString());
+        p.setProperty("count", Long.toString(s.count));
+        p.setProperty("nextSegment", Integer.toString(s.nextSegment));
+        for (Map.Entry<Integer,Path> e : s.segments.entrySet()) p.setProperty("segment." + e.getKey(), e.getValue().toString());
+        for (Map.Entry<String,Integer> e : s.statusCounts.entrySet()) p.setProperty("status." + e.getKey(), e.getValue().toString());
+        for (Map.Entry<String,Integer> e : s.classCounts.entrySet()) p.setProperty("class." + e.getKey(), e.getValue().toString());
+        Path manifest = dir.resolve(MANIFEST);
+        Path tmp = dir.resolve(MANIFEST + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer w = Channels.newWriter(ch, StandardCharsets.UTF_8);
+            p.store(w, "Reservation archive - written by the service, do not edit");
+            w.flush();
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static State readManifest(Path dir, Path manifest) throws IOException {
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            p.load(r);
+        }
+        try {
+            Map<Integer,Path> segments = new TreeMap<>();
+            Map<String,Integer> statusCounts = new HashMap<>(), classCounts = new HashMap<>();
+            for (String k : p.stringPropertyNames()) {
+                if (k.startsWith("segment.")) segments.put(Integer.parseInt(k.substring(8)), Path.of(p.getProperty(k)));
+                else if (k.startsWith("status.")) statusCounts.put(k.substring(7), Integer.parseInt(p.getProperty(k)));
+                else if (k.startsWith("class.")) classCounts.put(k.substring(6), Integer.parseInt(p.getProperty(k)));
+            }
+            Path index = Path.of(p.getProperty("index"));
+            long count = Long.parseLong(p.getProperty("count"));
+            return new State(Integer.parseInt(p.getProperty("generation")), LocalDate.parse(p.getProperty("cutoff")).toEpochDay(),
+                    index, map(dir.resolve(index), count), count, segments, Integer.parseInt(p.getProperty("nextSegment")),
+                    statusCounts, classCounts);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt archive manifest " + manifest + ": " + e, e);
+        }
+    }
+
+    // Files of runs that never committed (or indexes superseded while still mapped)
+    private void removeStrays() throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        State s = state;
+        List<Path> keep = new ArrayList<>(s.segments.values());
+        keep.add(Path.of(MANIFEST));
+        if (s.indexFile != null) keep.add(s.indexFile);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                if (!keep.contains(f.getFileName())) deleteQuietly(f);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path f) {
+        try {
+            Files.deleteIfExists(f);
+        } catch (IOException e) {
+            // e.g. an index still mapped on Windows; removed on the next open
+        }
+    }
+
+    // One committed (or staged) version of the archive
+    private static final class State {
+        static final State EMPTY = new State(0, Long.MIN_VALUE, null, null, 0, Collections.emptyMap(), 1,
+                Collections.emptyMap(), Collections.emptyMap());
+
+        final int generation;
+        final long cutoffDay;
+        final Path indexFile;                 // relative to the archive directory
+        final MappedByteBuffer index;         // null until committed / when empty
+        final long count;
+        final Map<Integer,Path> segments;     // number -> file name
+        final int nextSegment;
+        final Map<String,Integer> statusCounts;
+        final Map<String,Integer> classCounts;
+
+        State(int generation, long cutoffDay, Path indexFile, MappedByteBuffer index, long count, Map<Integer,Path> segments,
+              int nextSegment, Map<String,Integer> statusCounts, Map<String,Integer> classCounts) {
+            this.generation = generation;
+            this.cutoffDay = cutoffDay;
+            this.indexFile = indexFile;
+            this.index = index;
+            this.count = count;
+            this.segments = Collections.unmodifiableMap(segments);
+            this.nextSegment = nextSegment;
+            this.statusCounts = Collections.unmodifiableMap(statusCounts);
+            this.classCounts = Collections.unmodifiableMap(classCounts);
+        }
+
+        State withIndex(MappedByteBuffer mapped) {
+            return new State(generation, cutoffDay, indexFile, mapped, count, segments, nextSegment, statusCounts, classCounts);
+        }
+    }
+}
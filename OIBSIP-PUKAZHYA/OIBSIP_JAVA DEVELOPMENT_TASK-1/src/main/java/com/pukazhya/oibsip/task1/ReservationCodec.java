@@ -0,0 +1,321 @@
+package com.pukazhya.oibsip.task1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * ReservationCodec.java
+ * Reusable reader/writer for the reservation CSV row
+ *
+ * Rows have 13 columns, plus the seat label as a 14th since seats are tracked;
+ * 13-column rows from older files read with an empty seat.
+ *
+ * Decoding scans a byte slice once into field offsets, parses numbers and the
+ * fixed "yyyy-MM-dd HH:mm:ss" / "yyyy-MM-dd" layouts digit by digit, and reuses
+ * the String instances of repeating columns (train, class, stations, status).
+ * Malformed rows return null and leave the reason in {@link #error()}; no
+ * exception is thrown or caught on the hot path.
+ *
+ * Encoding appends straight into a caller-supplied StringBuilder.
+ *
+ * One instance per thread: all buffers are reused between calls.
+ */
+final class ReservationCodec implements CsvFileLoader.RecordParser<Reservation> {
+    static final int COLUMNS = 14;
+    static final int REQUIRED_COLUMNS = 13;
+
+    private static final int INTERN_SLOTS = 1024;   // power of two
+    private static final double[] POW10 = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    private final int[] start = new int[COLUMNS];
+    private final int[] end = new int[COLUMNS];
+    private final boolean[] escaped = new boolean[COLUMNS];
+    private int fields;
+    private byte[] scratch = new byte[256];
+    private final StringBuilder out = new StringBuilder(192);
+
+    // small direct-mapped cache of recently seen column values
+    private final byte[][] internKeys = new byte[INTERN_SLOTS][];
+    private final String[] internValues = new String[INTERN_SLOTS];
+
+    private int lastDateKey = -1;
+    private LocalDate lastDate;
+    private String error;
+
+    // Reason the last decode returned null
+    @Override
+    public String error() { return error; }
+
+    /* ----------------------------
+       Decode
+       ---------------------------- */
+
+    Reservation decode(String line) {
+        byte[] b = line.getBytes(StandardCharsets.UTF_8);
+        return parse(ByteBuffer.wrap(b), 0, b.length);
+    }
+
+    @Override
+    public Reservation parse(ByteBuffer buf, int from, int to) {
+        error = null;
+        if (!split(buf, from, to)) return null;
+
+        int age = parseInt(buf, 2);
+        if (age < 0) return reject("bad age");
+        LocalDateTime booking = parseDateTime(buf, 8);
+        if (booking == null) return reject("bad booking time");
+        LocalDate travel = parseDate(buf, start[9], end[9]);
+        if (travel == null) return reject("bad travel date");
+        double fare = parseFare(buf, 10);
+        if (Double.isNaN(fare)) return reject("bad fare");
+
+        return new Reservation(
+                string(buf, 0, false),
+                new Passenger(string(buf, 1, false), age),
+                string(buf, 3, true),
+                string(buf, 4, true),
+                string(buf, 5, true),
+                string(buf, 6, true),
+                string(buf, 7, true),
+                booking, travel, fare,
+                string(buf, 11, true),
+                string(buf, 12, true),
+                fields > 13 ? string(buf, 13, true) : "");
+    }
+
+    // Fill start/end/escaped for up to COLUMNS fields; extra fields are ignored
+    private boolean split(ByteBuffer buf, int from, int to) {
+        int f = 0;
+        int i = from;
+        while (f < COLUMNS) {
+            boolean esc = false;
+            if (i < to && buf.get(i) == '"') {
+                int s = ++i;
+                while (true) {
+                    if (i >= to) { reject("unterminated quote"); return false; }
+                    if (buf.get(i) == '"') {
+                        if (i + 1 < to && buf.get(i + 1) == '"') { esc = true; i += 2; continue; }
+                        break;
+                    }
+                    i++;
+                }
+                start[f] = s;
+                end[f] = i++;
+                // tolerate junk between the closing quote and the next comma
+                while (i < to && buf.get(i) != ',') i++;
+            } else {
+                start[f] = i;
+                while (i < to && buf.get(i) != ',') i++;
+                end[f] = i;
+            }
+            escaped[f++] = esc;
+            if (i >= to) break;
+            i++;   // skip ','
+        }
+        fields = f;
+        if (f < REQUIRED_COLUMNS) { reject("expected " + REQUIRED_COLUMNS + " columns"); return false; }
+        return true;
+    }
+
+    private String string(ByteBuffer buf, int f, boolean intern) {
+        int n = copy(buf, f);
+        if (!intern) return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        int h = 1;
+        for (int i = 0; i < n; i++) h = 31 * h + scratch[i];
+        int slot = (h ^ (h >>> 16)) & (INTERN_SLOTS - 1);
+        byte[] k = internKeys[slot];
+        if (k != null && Arrays.equals(k, 0, k.length, scratch, 0, n)) return internValues[slot];
+        String v = new String(scratch, 0, n, StandardCharsets.UTF_8);
+        internKeys[slot] = Arrays.copyOf(scratch, n);
+        internValues[slot] = v;
+        return v;
+    }
+
+    // Copy field bytes into scratch, collapsing "" escapes; returns length
+    private int copy(ByteBuffer buf, int f) {
+        int s = start[f], e = end[f];
+        if (e - s > scratch.length) scratch = new byte[Math.max(e - s, scratch.length * 2)];
+        if (!escaped[f]) {
+            buf.get(s, scratch, 0, e - s);
+            return e - s;
+        }
+        int n = 0;
+        for (int i = s; i < e; i++) {
+            byte b = buf.get(i);
+            scratch[n++] = b;
+            if (b == '"') i++;
+        }
+        return n;
+    }
+
+    private int parseInt(ByteBuffer buf, int f) {
+        int s = start[f], e = end[f];
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        if (s == e || e - s > 9) return -1;
+        int v = 0;
+        for (int i = s; i < e; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    // Plain decimals are mantissa / 10^k (one correctly rounded division); anything else goes through Double
+    private double parseFare(ByteBuffer buf, int f) {
+        int s = start[f], e = end[f];
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        if (s == e) return Double.NaN;
+        boolean neg = buf.get(s) == '-';
+        int i = neg ? s + 1 : s;
+        long mantissa = 0;
+        int digits = 0, frac = -1;
+        for (; i < e; i++) {
+            byte b = buf.get(i);
+            if (b == '.' && frac < 0) { frac = 0; continue; }
+            if (b < '0' || b > '9' || digits >= 15) return slowFare(buf, s, e);
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            if (frac >= 0) frac++;
+        }
+        if (digits == 0) return Double.NaN;
+        double v = frac > 0 ? mantissa / POW10[frac] : mantissa;
+        return neg ? -v : v;
+    }
+
+    private double slowFare(ByteBuffer buf, int s, int e) {
+        byte[] b = new byte[e - s];
+        buf.get(s, b, 0, b.length);
+        String t = new String(b, StandardCharsets.US_ASCII);
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (!(c >= '0' && c <= '9') && c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(t);
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    // yyyy-MM-dd HH:mm:ss
+    private LocalDateTime parseDateTime(ByteBuffer buf, int f) {
+        int s = start[f];
+        if (end[f] - s != 19 || buf.get(s + 10) != ' ' || buf.get(s + 13) != ':' || buf.get(s + 16) != ':') return null;
+        LocalDate d = parseDate(buf, s, s + 10);
+        if (d == null) return null;
+        int hh = digits2(buf, s + 11), mm = digits2(buf, s + 14), ss = digits2(buf, s + 17);
+        if (hh < 0 || hh > 23 || mm < 0 || mm > 59 || ss < 0 || ss > 59) return null;
+        return LocalDateTime.of(d.getYear(), d.getMonthValue(), d.getDayOfMonth(), hh, mm, ss);
+    }
+
+    // yyyy-MM-dd; consecutive rows usually share a date, so the last one is reused
+    private LocalDate parseDate(ByteBuffer buf, int s, int e) {
+        if (e - s != 10 || buf.get(s + 4) != '-' || buf.get(s + 7) != '-') return null;
+        int y1 = digits2(buf, s), y2 = digits2(buf, s + 2);
+        int mo = digits2(buf, s + 5), d = digits2(buf, s + 8);
+        if (y1 < 0 || y2 < 0 || mo < 1 || mo > 12 || d < 1) return null;
+        int y = y1 * 100 + y2;
+        if (d > daysInMonth(y, mo)) return null;
+        int key = (y * 100 + mo) * 100 + d;
+        if (key != lastDateKey) {
+            lastDate = LocalDate.of(y, mo, d);
+            lastDateKey = key;
+        }
+        return lastDate;
+    }
+
+    private static int digits2(ByteBuffer buf, int i) {
+        int a = buf.get(i) - '0', b = buf.get(i + 1) - '0';
+        if (a < 0 || a > 9 || b < 0 || b > 9) return -1;
+        return a * 10 + b;
+    }
+
+    static int daysInMonth(int y, int m) {
+        switch (m) {
+            case 2: return (y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) ? 29 : 28;
+            case 4: case 6: case 9: case 11: return 30;
+            default: return 31;
+        }
+    }
+
+    private Reservation reject(String reason) {
+        error = reason;
+        return null;
+    }
+
+    /* ----------------------------
+       Encode
+       ---------------------------- */
+
+    // One CSV row without line terminator; the returned String is the only allocation
+    String encode(Reservation r) {
+        out.setLength(0);
+        append(r, out);
+        return out.toString();
+    }
+
+    void append(Reservation r, StringBuilder sb) {
+        field(sb, r.getPnr()).append(',');
+        field(sb, r.getPassenger().getName()).append(',');
+        sb.append(r.getPassenger().getAge()).append(',');
+        field(sb, r.getTrainNo()).append(',');
+        field(sb, r.getTrainName()).append(',');
+        field(sb, r.getClassType()).append(',');
+        field(sb, r.getFrom()).append(',');
+        field(sb, r.getTo()).append(',');
+        appendDateTime(sb, r.getBookingTime()).append(',');
+        appendDate(sb, r.getTravelDate()).append(',');
+        appendFare(sb, r.getFare()).append(',');
+        field(sb, r.getStatus()).append(',');
+        field(sb, r.getCancelReason()).append(',');
+        field(sb, r.getSeat());
+    }
+
+    // Quote only when the value contains a comma, quote or line break
+    static StringBuilder field(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        boolean need = false;
+        for (int i = 0, n = s.length(); i < n && !need; i++) {
+            char c = s.charAt(i);
+            need = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!need) return sb.append(s);
+        sb.append('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    static StringBuilder appendDate(StringBuilder sb, LocalDate d) {
+        int y = d.getYear();
+        if (y < 1000) pad(sb, y / 100);
+        else sb.append(y / 100);
+        return pad(pad(pad(sb, y % 100).append('-'), d.getMonthValue()).append('-'), d.getDayOfMonth());
+    }
+
+    static StringBuilder appendDateTime(StringBuilder sb, LocalDateTime t) {
+        appendDate(sb, t.toLocalDate()).append(' ');
+        return pad(pad(pad(sb, t.getHour()).append(':'), t.getMinute()).append(':'), t.getSecond());
+    }
+
+    // Same text as String.format(Locale.US, "%.2f", fare) for the fares this system produces
+    static StringBuilder appendFare(StringBuilder sb, double fare) {
+        long cents = Math.round(Math.abs(fare) * 100);
+        if (fare < 0 && cents != 0) sb.append('-');
+        return pad(sb.append(cents / 100).append('.'), (int) (cents % 100));
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int v) {
+        if (v < 10) sb.append('0');
+        return sb.append(v);
+    }
+}
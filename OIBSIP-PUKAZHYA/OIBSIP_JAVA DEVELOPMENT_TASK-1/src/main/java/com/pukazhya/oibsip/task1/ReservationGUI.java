@@ -0,0 +1,574 @@
+package com.pukazhya.oibsip.task1;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ReservationGUI.java
+ * Swing UI: booking, reservations table, search and cancellation
+ */
+class ReservationGUI {
+    private final ReservationService service;
+
+    private JFrame frame;
+    private CardLayout cardLayout;
+    private JPanel root;
+
+    // booking fields
+    private JTextField tfName, tfAge, tfFrom, tfTo, tfTrainNo;
+    private JComboBox<String> cbClass, cbTrainSelect;
+    private JComboBox<SeatInventory.Berth> cbBerth;
+    private JSpinner spDate;
+    private JLabel lblFare, lblPNR;
+
+    // view fields
+    private JTable table;
+    private ReservationTableModel tableModel;
+    private JTextField tfSearchPNR, tfSearchName;
+
+    private boolean darkTheme = true;
+
+    ReservationGUI(ReservationService service) {
+        this.service = service;
+    }
+
+    void start() {
+        buildUI();
+        applyTheme();
+        frame.setVisible(true);
+    }
+
+    private void buildUI() {
+        frame = new JFrame("Online Reservation System - by PUKAZHYA");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setSize(1024, 680);
+        frame.setLocationRelativeTo(null);
+
+        root = new JPanel();
+        root.setBorder(new EmptyBorder(12,12,12,12));
+        cardLayout = new CardLayout();
+        root.setLayout(cardLayout);
+
+        JPanel home = createHomePanel();
+        JPanel book = createBookPanel();
+        JPanel view = createViewPanel();
+
+        root.add(home, "home");
+        root.add(book, "book");
+        root.add(view, "view");
+
+        frame.setContentPane(root);
+        frame.setJMenuBar(createMenuBar());
+    }
+
+    private JMenuBar createMenuBar() {
+        JMenuBar mb = new JMenuBar();
+        mb.setBorder(new EmptyBorder(6,8,6,8));
+
+        JLabel title = new JLabel("PUKAZHYA - Reservation Manager");
+        title.setFont(new Font("Segoe UI", Font.BOLD, 18));
+        title.setBorder(new EmptyBorder(0,6,0,20));
+        mb.add(title);
+
+        mb.add(Box.createHorizontalGlue());
+
+        JButton btnHome = toolbarButton("Dashboard");
+        btnHome.addActionListener(e -> cardLayout.show(root, "home"));
+        mb.add(btnHome);
+
+        JButton btnBook = toolbarButton("Book Ticket");
+        btnBook.addActionListener(e -> { resetBookingForm(); cardLayout.show(root, "book"); });
+        mb.add(btnBook);
+
+        JButton btnView = toolbarButton("View / Cancel");
+        btnView.addActionListener(e -> { loadDataToTable(); cardLayout.show(root, "view"); });
+        mb.add(btnView);
+
+        JToggleButton tgTheme = new JToggleButton("Dark");
+        tgTheme.setSelected(darkTheme);
+        tgTheme.addActionListener(e -> {
+            darkTheme = tgTheme.isSelected();
+            tgTheme.setText(darkTheme ? "Dark" : "Light");
+            applyTheme();
+        });
+        mb.add(Box.createHorizontalStrut(12));
+        mb.add(tgTheme);
+
+        return mb;
+    }
+
+    private JButton toolbarButton(String text) {
+        JButton b = new JButton(text);
+        b.setFocusPainted(false);
+        b.setBorder(new EmptyBorder(6,10,6,10));
+        return b;
+    }
+
+    private JPanel createHomePanel() {
+        JPanel p = new JPanel(new BorderLayout(12,12));
+        p.setOpaque(false);
+
+        JLabel header = new JLabel("Dashboard");
+        header.setFont(new Font("Segoe UI", Font.BOLD, 22));
+
+        JPanel stats = new JPanel(new GridLayout(1,4,12,12));
+        stats.setOpaque(false);
+
+        JPanel c1 = statCard("Total Records", st -> String.valueOf(st.getTotal()));
+        JPanel c2 = statCard("Active (Booked)", st -> String.valueOf(st.getStatusCount("Booked")));
+        JPanel c3 = statCard("Waitlisted", st -> String.valueOf(st.getStatusCount("Waitlisted")));
+        JPanel c4 = statCard("Cancelled", st -> String.valueOf(st.getStatusCount("Cancelled")));
+
+        stats.add(c1); stats.add(c2); stats.add(c3); stats.add(c4);
+
+        JTextArea info = new JTextArea("Welcome, PUKAZHYA!\nThis application stores data in 'reservations.csv.parts' (one file per travel month).\nUse Book Ticket to create new bookings and View/Cancel to manage them.");
+        info.setOpaque(false);
+        info.setEditable(false);
+        info.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        info.setBorder(new EmptyBorder(12,12,12,12));
+
+        p.add(header, BorderLayout.NORTH);
+        p.add(stats, BorderLayout.CENTER);
+        p.add(info, BorderLayout.SOUTH);
+        return p;
+    }
+
+    // Card showing one figure of the service counters; repainted when the service reports a change
+    private JPanel statCard(String title, java.util.function.Function<ReservationStats,String> figure) {
+        JPanel c = new JPanel(new BorderLayout());
+        c.setBorder(new EmptyBorder(12,12,12,12));
+        c.setOpaque(false);
+        JLabel t = new JLabel(title);
+        t.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        JLabel v = new JLabel(figure.apply(service.getStats()));
+        v.setFont(new Font("Segoe UI", Font.BOLD, 24));
+        // a burst of bookings queues at most one repaint, which reads the newest counters
+        AtomicBoolean queued = new AtomicBoolean();
+        service.addChangeListener(st -> {
+            if (queued.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    queued.set(false);
+                    v.setText(figure.apply(service.getStats()));
+                });
+            }
+        });
+        c.add(t, BorderLayout.NORTH);
+        c.add(v, BorderLayout.CENTER);
+        return c;
+    }
+
+    private JPanel createBookPanel() {
+        JPanel p = new JPanel(new BorderLayout(12,12));
+        p.setOpaque(false);
+        JLabel header = new JLabel("Book a Ticket");
+        header.setFont(new Font("Segoe UI", Font.BOLD, 20));
+
+        JPanel form = new JPanel(new GridBagLayout());
+        form.setOpaque(false);
+        GridBagConstraints c = new GridBagConstraints();
+        c.insets = new Insets(8,8,8,8);
+        c.fill = GridBagConstraints.HORIZONTAL;
+        int row = 0;
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Passenger Name:"), c);
+        tfName = new JTextField(); c.gridx=1; c.gridy=row++; c.weightx=1; form.add(tfName, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Age:"), c);
+        tfAge = new JTextField(); c.gridx=1; c.gridy=row++; form.add(tfAge, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Train (select):"), c);
+        cbTrainSelect = new JComboBox<>(service.getTrains().keySet().toArray(new String[0]));
+        cbTrainSelect.setEditable(false);
+        cbTrainSelect.addActionListener(e -> {
+            String tn = (String) cbTrainSelect.getSelectedItem();
+            tfTrainNo.setText(tn);
+            TrainRoute route = service.getRoute(tn);
+            String stops = route == null ? null : "Stops: " + String.join(" → ", route.getStops());
+            tfFrom.setToolTipText(stops);
+            tfTo.setToolTipText(stops);
+            calculateFarePreview();
+        });
+        c.gridx=1; c.gridy=row++; form.add(cbTrainSelect, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Train No/code:"), c);
+        tfTrainNo = new JTextField(); c.gridx=1; c.gridy=row++; form.add(tfTrainNo, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Class:"), c);
+        cbClass = new JComboBox<>(new String[] {"AC 1st","AC 2-tier","AC 3-tier","Sleeper","General"});
+        c.gridx=1; c.gridy=row++; form.add(cbClass, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Berth preference:"), c);
+        cbBerth = new JComboBox<>(SeatInventory.Berth.values());
+        c.gridx=1; c.gridy=row++; form.add(cbBerth, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("From:"), c);
+        tfFrom = new JTextField(); c.gridx=1; c.gridy=row++; form.add(tfFrom, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("To:"), c);
+        tfTo = new JTextField(); c.gridx=1; c.gridy=row++; form.add(tfTo, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Journey Date:"), c);
+        Date init = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        spDate = new JSpinner(new SpinnerDateModel(init, null, null, Calendar.DAY_OF_MONTH));
+        JSpinner.DateEditor de = new JSpinner.DateEditor(spDate, "yyyy-MM-dd");
+        spDate.setEditor(de);
+        c.gridx=1; c.gridy=row++; form.add(spDate, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Fare (preview):"), c);
+        lblFare = new JLabel("—"); c.gridx=1; c.gridy=row++; form.add(lblFare, c);
+
+        c.gridx=0; c.gridy=row; form.add(new JLabel("Generated PNR:"), c);
+        lblPNR = new JLabel("—"); c.gridx=1; c.gridy=row++; form.add(lblPNR, c);
+
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton btnCalc = new JButton("Calculate Fare");
+        btnCalc.addActionListener(e -> calculateFarePreview());
+        JButton btnBook = new JButton("Book & Generate PNR");
+        btnBook.addActionListener(e -> submitBooking());
+        JButton btnSample = new JButton("Export Sample CSV");
+        btnSample.addActionListener(e -> exportSampleCSV());
+        actions.add(btnCalc); actions.add(btnBook); actions.add(btnSample);
+
+        p.add(header, BorderLayout.NORTH);
+        p.add(form, BorderLayout.CENTER);
+        p.add(actions, BorderLayout.SOUTH);
+        return p;
+    }
+
+    private JPanel createViewPanel() {
+        JPanel p = new JPanel(new BorderLayout(12,12));
+        p.setOpaque(false);
+        JLabel header = new JLabel("View / Cancel Reservations");
+        header.setFont(new Font("Segoe UI", Font.BOLD, 20));
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.setOpaque(false);
+        top.add(new JLabel("Search PNR:"));
+        tfSearchPNR = new JTextField(10);
+        top.add(tfSearchPNR);
+        JButton btnSearchPNR = new JButton("Search");
+        btnSearchPNR.addActionListener(e -> searchByPNR());
+        top.add(btnSearchPNR);
+
+        top.add(Box.createHorizontalStrut(12));
+        top.add(new JLabel("Search Name:"));
+        tfSearchName = new JTextField(12);
+        top.add(tfSearchName);
+        JButton btnSearchName = new JButton("Find");
+        btnSearchName.addActionListener(e -> searchByName());
+        top.add(btnSearchName);
+
+        JButton btnRefresh = new JButton("Refresh");
+        btnRefresh.addActionListener(e -> loadDataToTable());
+        top.add(btnRefresh);
+
+        top.add(Box.createHorizontalStrut(12));
+        top.add(new JLabel("Show:"));
+        JComboBox<String> cbShow = new JComboBox<>(new String[] {"All","Booked","Waitlisted","Cancelled"});
+        cbShow.addActionListener(e -> tableModel.setStatusFilter("All".equals(cbShow.getSelectedItem()) ? null : (String) cbShow.getSelectedItem()));
+        top.add(cbShow);
+
+        // rows come straight from the service's current view; the model sorts and filters itself
+        tableModel = new ReservationTableModel(service.currentView());
+        table = new JTable(tableModel);
+        table.setRowHeight(26);
+        JTableHeader th = table.getTableHeader();
+        th.setToolTipText("Click a column to sort; click again to reverse");
+        th.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override public void mouseClicked(java.awt.event.MouseEvent e) {
+                int col = table.convertColumnIndexToModel(th.columnAtPoint(e.getPoint()));
+                if (col < 0) return;
+                tableModel.sortBy(col);
+                for (int i = 0; i < table.getColumnCount(); i++) {
+                    int m = table.convertColumnIndexToModel(i);
+                    String arrow = m != tableModel.getSortColumn() ? "" : tableModel.isDescending() ? " ▼" : " ▲";
+                    table.getColumnModel().getColumn(i).setHeaderValue(tableModel.getColumnName(m) + arrow);
+                }
+                th.repaint();
+            }
+        });
+        // bookings and cancellations from anywhere arrive as row events; a burst queues one update
+        AtomicBoolean queued = new AtomicBoolean();
+        service.addChangeListener(st -> {
+            if (queued.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    queued.set(false);
+                    loadDataToTable();
+                });
+            }
+        });
+        JScrollPane jsp = new JScrollPane(table);
+
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton btnView = new JButton("View Details");
+        btnView.addActionListener(e -> viewSelected());
+        JButton btnCancel = new JButton("Cancel Selected");
+        btnCancel.addActionListener(e -> cancelSelected());
+        JButton btnExport = new JButton("Export Tickets");
+        btnExport.setToolTipText("All selected rows into one ZIP of ticket files");
+        btnExport.addActionListener(e -> exportSelected());
+        bottom.add(btnView); bottom.add(btnCancel); bottom.add(btnExport);
+
+        p.add(header, BorderLayout.NORTH);
+        p.add(top, BorderLayout.NORTH); // corrected from AFTER_LINE_ENDS
+        p.add(jsp, BorderLayout.CENTER);
+        p.add(bottom, BorderLayout.SOUTH);
+        return p;
+    }
+
+    private void applyTheme() {
+        Color bg = darkTheme ? new Color(34,34,38) : Color.WHITE;
+        Color fg = darkTheme ? Color.WHITE : Color.DARK_GRAY;
+        Color panel = darkTheme ? new Color(44,44,48) : new Color(245,245,245);
+        Color accent = darkTheme ? new Color(75,135,255) : new Color(20,110,230);
+
+        frame.getContentPane().setBackground(bg);
+        for (Component comp : getAll(frame.getContentPane())) {
+            style(comp, bg, fg, panel, accent);
+        }
+        frame.repaint();
+    }
+
+    private void style(Component comp, Color bg, Color fg, Color panel, Color accent) {
+        comp.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        if (comp instanceof JPanel) {
+            comp.setBackground(panel);
+        } else if (comp instanceof JLabel) {
+            comp.setForeground(fg);
+        } else if (comp instanceof JButton) {
+            JButton b = (JButton) comp;
+            b.setBackground(accent);
+            b.setForeground(Color.WHITE);
+            b.setFocusPainted(false);
+        } else if (comp instanceof JTextField || comp instanceof JSpinner || comp instanceof JComboBox || comp instanceof JTable || comp instanceof JTextArea) {
+            comp.setBackground(darkTheme ? new Color(60,60,64) : Color.WHITE);
+            comp.setForeground(fg);
+            if (comp instanceof JTable) {
+                JTable t = (JTable) comp;
+                t.getTableHeader().setBackground(panel);
+                t.getTableHeader().setForeground(fg);
+            }
+        }
+        if (comp instanceof Container) {
+            for (Component c : ((Container) comp).getComponents()) style(c, bg, fg, panel, accent);
+        }
+    }
+
+    private java.util.List<Component> getAll(Container c) {
+        List<Component> out = new ArrayList<>();
+        for (Component comp : c.getComponents()) {
+            out.add(comp);
+            if (comp instanceof Container) out.addAll(getAll((Container) comp));
+        }
+        return out;
+    }
+
+    private void resetBookingForm() {
+        tfName.setText("");
+        tfAge.setText("");
+        tfFrom.setText("");
+        tfTo.setText("");
+        tfTrainNo.setText((String) cbTrainSelect.getSelectedItem());
+        cbClass.setSelectedIndex(0);
+        cbBerth.setSelectedIndex(0);
+        lblFare.setText("-");
+        lblPNR.setText("-");
+        spDate.setValue(Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    }
+
+  private void calculateFarePreview() {
+    try {
+        String trainNo = tfTrainNo.getText().trim();
+        String from = tfFrom.getText().trim();
+        String to = tfTo.getText().trim();
+        String cls = (String) cbClass.getSelectedItem();
+        double fare = service.estimateFare(trainNo, from, to, cls);
+        LocalDate travel = Instant.ofEpochMilli(((Date) spDate.getValue()).getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+        int free = service.seatsAvailable(trainNo, travel, cls, from, to);
+        String seatsText = free > 0 ? free + " seats free" : "full, " + service.waitlistLength(trainNo, travel, cls) + " waitlisted";
+        lblFare.setText("Rs. " + new DecimalFormat("#,##0").format(fare) + "   (" + seatsText + ")");
+    } catch (Exception ex) {
+        lblFare.setText("-");
+    }
+}
+
+    private void submitBooking() {
+        String name = tfName.getText().trim();
+        String ageStr = tfAge.getText().trim();
+        String from = tfFrom.getText().trim();
+        String to = tfTo.getText().trim();
+        String trainNo = tfTrainNo.getText().trim();
+        String cls = (String) cbClass.getSelectedItem();
+        Date dt = (Date) spDate.getValue();
+        LocalDate travel = Instant.ofEpochMilli(dt.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+
+        // validations
+        if (name.length() < 2) { JOptionPane.showMessageDialog(frame, "Enter a valid passenger name."); return; }
+        int age;
+        try { age = Integer.parseInt(ageStr); if (age <= 0 || age > 120) throw new Exception(); } catch (Exception e) { JOptionPane.showMessageDialog(frame, "Enter a valid age (1-120)."); return; }
+        if (from.isEmpty() || to.isEmpty()) { JOptionPane.showMessageDialog(frame, "Enter From and To places."); return; }
+        if (trainNo.isEmpty()) { JOptionPane.showMessageDialog(frame, "Select or enter a train number/code."); return; }
+        if (travel.isBefore(LocalDate.now())) { JOptionPane.showMessageDialog(frame, "Travel date cannot be in the past."); return; }
+        TrainRoute route = service.getRoute(trainNo);
+        if (route != null && !route.serves(from, to)) {
+            JOptionPane.showMessageDialog(frame, trainNo + " does not run " + from + " → " + to + ".\nStops: " + String.join(" → ", route.getStops()));
+            return;
+        }
+
+        String trainName = service.getTrains().getOrDefault(trainNo, service.getTrains().getOrDefault((String)cbTrainSelect.getSelectedItem(), "Express"));
+        Reservation r;
+        try {
+            r = service.book(name, age, trainNo, trainName, cls, from, to, travel, (SeatInventory.Berth) cbBerth.getSelectedItem());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            JOptionPane.showMessageDialog(frame, "Booking rejected: " + e.getMessage());
+            return;
+        }
+        if (r == null) { JOptionPane.showMessageDialog(frame, "No seats left in " + cls + " on " + trainNo + " for " + travel + " and the waitlist is full."); return; }
+        lblPNR.setText(r.getPnr());
+        if (ReservationService.isWaitlisted(r.getStatus())) {
+            JOptionPane.showMessageDialog(frame, "Class is full - waitlisted. PNR: " + r.getPnr() + "  Waitlist position: " + service.waitlistPosition(r.getPnr())
+                    + "\nThe booking is confirmed automatically when a berth is cancelled.");
+            return;
+        }
+        JOptionPane.showMessageDialog(frame, "Booked successfully! PNR: " + r.getPnr() + "  Seat: " + r.getSeat());
+    }
+
+    // Move the table to the latest view; only new and changed rows produce events (EDT)
+    private void loadDataToTable() {
+        tableModel.update(service.currentView());
+    }
+
+    private void searchByPNR() {
+        String q = tfSearchPNR.getText().trim();
+        if (q.isEmpty()) { JOptionPane.showMessageDialog(frame, "Enter PNR to search."); return; }
+        Reservation r = service.findByPNR(q);
+        if (r == null) { JOptionPane.showMessageDialog(frame, "PNR not found: " + q); return; }
+        showReservationDialog(r);
+    }
+
+    private void searchByName() {
+        String q = tfSearchName.getText().trim();
+        if (q.isEmpty()) { JOptionPane.showMessageDialog(frame, "Enter name to search."); return; }
+        List<Reservation> matches = service.findByName(q);
+        if (matches.isEmpty()) { JOptionPane.showMessageDialog(frame, "No matches for: " + q); return; }
+        if (matches.size() == 1) {
+            showReservationDialog(matches.get(0));
+        } else {
+            String[] choices = matches.stream().map(m -> m.getPnr() + " — " + m.getPassenger().getName() + " (" + m.getTravelDate() + ")").toArray(String[]::new);
+            String prompt = matches.size() >= ReservationService.NAME_SEARCH_LIMIT
+                    ? "Top " + matches.size() + " matches - refine the name or choose one"
+                    : "Multiple matches - choose one";
+            String pick = (String) JOptionPane.showInputDialog(frame, prompt, "Choose", JOptionPane.PLAIN_MESSAGE, null, choices, choices[0]);
+            if (pick != null) {
+                String pnr = pick.split(" — ")[0].trim();
+                Reservation r = service.findByPNR(pnr);
+                if (r != null) showReservationDialog(r);
+            }
+        }
+    }
+
+    private void viewSelected() {
+        int row = table.getSelectedRow();
+        if (row < 0) { JOptionPane.showMessageDialog(frame, "Select a row first."); return; }
+        String pnr = tableModel.pnrAt(row);
+        Reservation r = service.findByPNR(pnr);
+        if (r != null) showReservationDialog(r);
+    }
+
+    private void cancelSelected() {
+        int row = table.getSelectedRow();
+        if (row < 0) { JOptionPane.showMessageDialog(frame, "Select a row to cancel."); return; }
+        String pnr = tableModel.pnrAt(row);
+        Reservation r = service.findByPNR(pnr);
+        if (r == null) { JOptionPane.showMessageDialog(frame, "Reservation not found."); return; }
+        if ("Cancelled".equalsIgnoreCase(r.getStatus())) { JOptionPane.showMessageDialog(frame, "Already cancelled."); return; }
+        String reason = JOptionPane.showInputDialog(frame, "Enter cancellation reason (required):");
+        if (reason == null || reason.trim().length() < 3) { JOptionPane.showMessageDialog(frame, "Cancellation aborted. Reason required."); return; }
+        boolean ok = service.cancel(pnr, reason.trim());
+        if (ok) JOptionPane.showMessageDialog(frame, "Reservation cancelled.");
+        else JOptionPane.showMessageDialog(frame, "Cancellation failed.");
+    }
+
+    private void exportSelected() {
+        int[] rows = table.getSelectedRows();
+        if (rows.length == 0) { JOptionPane.showMessageDialog(frame, "Select one or more rows first."); return; }
+        List<String> pnrs = new ArrayList<>(rows.length);
+        for (int row : rows) pnrs.add(tableModel.pnrAt(row));
+        Path p = Paths.get("tickets_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".zip");
+        try {
+            int n = service.exportTickets(pnrs, p);
+            JOptionPane.showMessageDialog(frame, "Exported " + n + " ticket(s) to " + p.toAbsolutePath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(frame, "Export failed: " + ex.getMessage());
+        }
+    }
+
+    private void showReservationDialog(Reservation r) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PNR: ").append(r.getPnr()).append("\n");
+        sb.append("Name: ").append(r.getPassenger().getName()).append(" (Age ").append(r.getPassenger().getAge()).append(")\n");
+        sb.append("Train: ").append(r.getTrainName()).append(" (").append(r.getTrainNo()).append(")\n");
+        sb.append("Class: ").append(r.getClassType()).append("\n");
+        if (!r.getSeat().isEmpty()) sb.append("Seat: ").append(r.getSeat()).append("\n");
+        sb.append("From → To: ").append(r.getFrom()).append(" → ").append(r.getTo()).append("\n");
+        sb.append("Journey Date: ").append(r.getTravelDate()).append("\n");
+        sb.append("Booked At: ").append(r.getBookingTime()).append("\n");
+        sb.append("Fare: ₹").append((int)Math.round(r.getFare())).append("\n");
+        sb.append("Status: ").append(r.getStatus()).append("\n");
+        if (ReservationService.isWaitlisted(r.getStatus())) sb.append("Waitlist position: ").append(service.waitlistPosition(r.getPnr())).append("\n");
+        if ("Cancelled".equalsIgnoreCase(r.getStatus())) sb.append("Cancel Reason: ").append(r.getCancelReason()).append("\n");
+
+        JTextArea ta = new JTextArea(sb.toString());
+        ta.setEditable(false);
+        ta.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        ta.setBorder(new EmptyBorder(8,8,8,8));
+
+        int opt = JOptionPane.showOptionDialog(frame, new JScrollPane(ta), "Reservation Details",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null,
+                new String[] {"Export Ticket", "Close"}, "Close");
+
+        if (opt == 0) {
+            Path p = service.exportTicketText(r);
+            if (p != null) {
+                try { Desktop.getDesktop().open(p.toFile()); } catch (Exception ex) { /* ignore */ }
+            } else {
+                JOptionPane.showMessageDialog(frame, "Export failed.");
+            }
+        }
+    }
+
+    private void exportSampleCSV() {
+        try {
+            Path p = Paths.get("reservations_sample_template.csv");
+            List<String> lines = Arrays.asList(
+                    "PNR,Name,Age,TrainNo,TrainName,Class,From,To,BookingTime,TravelDate,Fare,Status,CancelReason,Seat",
+                    "\"PZEX01\",\"John Doe\",30,22401,\"Rajdhani Express\",\"AC 3-tier\",\"CityA\",\"CityB\",\"2025-10-30 19:46:00\",\"2025-11-15\",1200.00,Booked,,B1-1",
+                    "\"PZEX02\",\"Anita\",28,12049,\"Shatabdi Deluxe\",\"Sleeper\",\"CityX\",\"CityY\",\"2025-10-30 19:46:00\",\"2025-12-01\",550.00,Cancelled,\"User requested\",S1-4"
+            );
+            Files.write(p, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            try { Desktop.getDesktop().open(p.toFile()); } catch (Exception ex) { /* ignore */ }
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(frame, "Could not export sample CSV: " + ex.getMessage());
+        }
+    }
+}
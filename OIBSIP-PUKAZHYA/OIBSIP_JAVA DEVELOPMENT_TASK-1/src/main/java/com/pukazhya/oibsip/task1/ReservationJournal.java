@@ -0,0 +1,198 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * ReservationJournal.java
+ * Append-only change log kept next to a base CSV (one per month partition)
+ *
+ * Every booking or cancellation is appended as one full CSV row to the active
+ * journal segment (e.g. "2025-06.csv.journal.N"). Replaying base file + segments
+ * in order and keeping the last row per PNR rebuilds the current state.
+ * Compaction rolls to a new segment, folds the older ones into the base file
+ * and then deletes them, so a crash at any point still replays correctly.
+ *
+ * Appends are plain OS writes; {@link #sync()} forces them to the device.
+ * {@link JournalWriter} decides when to call which.
+ */
+final class ReservationJournal {
+    // compact once this many rows have been appended since the last fold
+    static final int DEFAULT_COMPACT_THRESHOLD = 10_000;
+
+    private final Path baseFile;
+    private final String prefix;
+    private final int compactThreshold;
+
+    private long generation;
+    private FileChannel channel;
+    private int pendingRecords;
+
+    ReservationJournal(Path baseFile) {
+        this(baseFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    ReservationJournal(Path baseFile, int compactThreshold) {
+        this.baseFile = baseFile.toAbsolutePath();
+        this.prefix = this.baseFile.getFileName().toString() + ".journal.";
+        this.compactThreshold = Math.max(1, compactThreshold);
+    }
+
+    // Existing segments, oldest first
+    List<Path> segments() throws IOException {
+        List<Path> out = new ArrayList<>();
+        Path dir = baseFile.getParent();
+        if (dir == null || !Files.isDirectory(dir)) return out;
+        try (Stream<Path> s = Files.list(dir)) {
+            s.filter(p -> generationOf(p) >= 0)
+             .sorted((a, b) -> Long.compare(generationOf(a), generationOf(b)))
+             .forEach(out::add);
+        }
+        return out;
+    }
+
+    /**
+     * Cut a torn row off the end of the newest segment; call before replay.
+     * A crash in the middle of an append leaves part of a row with no line
+     * end. Replay could read it as a shorter row, and the next append would
+     * be glued onto it. Sealed segments were complete when they were rolled.
+     *
+     * @return offset where the torn row started, or -1 if the segment was whole
+     */
+    synchronized long truncateTornTail() throws IOException {
+        List<Path> segs = segments();
+        if (segs.isEmpty()) return -1;
+        try (FileChannel ch = FileChannel.open(segs.get(segs.size() - 1), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size(), end = 0, pos = 0;
+            boolean quoted = false;
+            ByteBuffer buf = ByteBuffer.allocate(64 << 10);
+            while (pos < size) {
+                buf.clear();
+                int n = ch.read(buf, pos);
+                if (n < 0) break;
+                for (int i = 0; i < n; i++) {
+                    byte b = buf.get(i);
+                    if (b == '"') quoted = !quoted;
+                    else if (b == '\n' && !quoted) end = pos + i + 1;
+                }
+                pos += n;
+            }
+            if (end == size) return -1;
+            ch.truncate(end);
+            ch.force(false);
+            return end;
+        }
+    }
+
+    // Open (or continue) the newest segment for appends; call after replay
+    synchronized void open(int replayedRecords) throws IOException {
+        List<Path> segs = segments();
+        generation = segs.isEmpty() ? 1 : generationOf(segs.get(segs.size() - 1));
+        pendingRecords = replayedRecords;
+        openWriter();
+    }
+
+    // Append rows with one OS write; cost is independent of dataset size
+    synchronized void appendAll(List<String> rows) throws IOException {
+        if (rows.isEmpty()) return;
+        if (channel == null) openWriter();
+        StringBuilder sb = new StringBuilder(rows.size() * 160);
+        for (String row : rows) sb.append(row).append('\n');
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) channel.write(buf);
+        pendingRecords += rows.size();
+    }
+
+    // Force appended rows to the storage device
+    synchronized void sync() throws IOException {
+        if (channel != null) channel.force(false);
+    }
+
+    synchronized boolean needsCompaction() {
+        return pendingRecords >= compactThreshold;
+    }
+
+    // Any rows not yet folded into the base file
+    synchronized boolean hasPending() {
+        return pendingRecords > 0;
+    }
+
+    /**
+     * Seal the active segment and start a new one.
+     * Must be called while the caller holds the state lock so the snapshot
+     * taken alongside it covers exactly the sealed segments.
+     *
+     * @return generation of the new active segment; older ones may be discarded
+     *         once the base file has been rewritten.
+     */
+    synchronized long roll() throws IOException {
+        closeWriter();
+        generation++;
+        pendingRecords = 0;
+        openWriter();
+        return generation;
+    }
+
+    // Delete sealed segments already folded into the base file
+    synchronized void discardBefore(long gen) throws IOException {
+        for (Path p : segments()) {
+            if (generationOf(p) < gen) Files.deleteIfExists(p);
+        }
+    }
+
+    // Streams the new base file contents
+    interface BaseWriter {
+        void writeTo(Writer w) throws IOException;
+    }
+
+    // Replace the base file atomically with whatever the body writes
+    void writeBase(BaseWriter body) throws IOException {
+        Path tmp = baseFile.resolveSibling(baseFile.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            body.writeTo(w);
+        }
+        try {
+            Files.move(tmp, baseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, baseFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    synchronized void close() throws IOException {
+        sync();
+        closeWriter();
+    }
+
+    private void openWriter() throws IOException {
+        channel = FileChannel.open(segmentPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeWriter() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private Path segmentPath(long gen) {
+        return baseFile.resolveSibling(prefix + gen);
+    }
+
+    private long generationOf(Path p) {
+        String n = p.getFileName().toString();
+        if (!n.startsWith(prefix)) return -1;
+        try {
+            return Long.parseLong(n.substring(prefix.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * ReservationMetrics.java
+ * Latency histograms of the ReservationService operations, exposed over JMX
+ *
+ * One {@link LatencyHistogram} per {@link Op}. The service records into them
+ * on every call; {@link #register} publishes them as a
+ * {@link ReservationMetricsMXBean}, and {@link #dump} appends the current
+ * table to a file (scheduled by the service when -Dmetrics.dumpSeconds is set).
+ *
+ * Cost on the booking path: two System.nanoTime() readings and one histogram
+ * record for the call. Month locks are tried first without a clock reading;
+ * only acquisitions that have to wait are timed, so lockWait holds contended
+ * acquisitions only.
+ */
+final class ReservationMetrics implements ReservationMetricsMXBean {
+    enum Op {
+        BOOK("book"), CANCEL("cancel"), FIND_BY_PNR("findByPNR"), FIND_BY_NAME("findByName"),
+        SAVE("save"), LOAD("load"), LOCK_WAIT("lockWait");
+
+        final String label;
+
+        Op(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Op.values().length];
+    private volatile Path dumpFile;
+    private ObjectName name;
+
+    ReservationMetrics() {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+    }
+
+    LatencyHistogram get(Op op) {
+        return histograms[op.ordinal()];
+    }
+
+    // Record the time elapsed since startNanos (a System.nanoTime() reading)
+    void recordSince(Op op, long startNanos) {
+        histograms[op.ordinal()].recordSince(startNanos);
+    }
+
+    /**
+     * Publish on the platform MBean server under the data file's name.
+     * A failure (e.g. a second service on the same file in one JVM) is
+     * reported and otherwise ignored: metrics are still recorded.
+     */
+    void register(Path dataFile) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName n = new ObjectName("com.pukazhya.oibsip.task1:type=ReservationService,name="
+                    + ObjectName.quote(dataFile.toAbsolutePath().toString()));
+            server.registerMBean(this, n);
+            name = n;
+        } catch (JMException e) {
+            System.err.println("Latency metrics not registered with JMX: " + e.getMessage());
+        }
+    }
+
+    void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone
+        }
+        name = null;
+    }
+
+    void setDumpFile(Path file) {
+        this.dumpFile = file;
+    }
+
+    // Append the current table to the dump file, if one is set
+    void dump() {
+        Path file = dumpFile;
+        if (file == null) return;
+        String block = "# " + LocalDateTime.now().format(STAMP) + "\n" + report() + "\n";
+        try {
+            Files.write(file, block.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Failed to write latency metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String,Long> getCounts() {
+        Map<String,Long> out = new LinkedHashMap<>();
+        for (Op op : Op.values()) out.put(op.label, get(op).snapshot().count);
+        return out;
+    }
+
+    @Override
+    public Map<String,Double> getP50Micros() {
+        return micros(s -> s.percentile(50));
+    }
+
+    @Override
+    public Map<String,Double> getP99Micros() {
+        return micros(s -> s.percentile(99));
+    }
+
+    @Override
+    public Map<String,Double> getP999Micros() {
+        return micros(s -> s.percentile(99.9));
+    }
+
+    @Override
+    public Map<String,Double> getMaxMicros() {
+        return micros(s -> s.maxNanos);
+    }
+
+    @Override
+    public Map<String,Double> getMeanMicros() {
+        return micros(LatencyHistogram.Snapshot::meanNanos);
+    }
+
+    @Override
+    public long getLockWaitCount() {
+        return get(Op.LOCK_WAIT).snapshot().count;
+    }
+
+    @Override
+    public double getLockWaitTotalMillis() {
+        return get(Op.LOCK_WAIT).snapshot().totalNanos / 1e6;
+    }
+
+    @Override
+    public double getLockWaitP99Micros() {
+        return get(Op.LOCK_WAIT).snapshot().percentile(99) / 1e3;
+    }
+
+    @Override
+    public String getDumpFile() {
+        Path file = dumpFile;
+        return file == null ? "" : file.toString();
+    }
+
+    @Override
+    public String report() {
+        StringBuilder out = new StringBuilder(String.format(Locale.US, "%-11s %12s %9s %9s %9s %9s %9s%n",
+                "op", "count", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (Op op : Op.values()) {
+            LatencyHistogram.Snapshot s = get(op).snapshot();
+            out.append(String.format(Locale.US, "%-11s %,12d %9.1f %9.1f %9.1f %9.1f %9.1f%n", op.label, s.count,
+                    s.meanNanos() / 1e3, s.percentile(50) / 1e3, s.percentile(99) / 1e3, s.percentile(99.9) / 1e3, s.maxNanos / 1e3));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : histograms) h.reset();
+    }
+
+    private Map<String,Double> micros(ToDoubleFunction<LatencyHistogram.Snapshot> nanos) {
+        Map<String,Double> out = new LinkedHashMap<>();
+        for (Op op : Op.values()) out.put(op.label, nanos.applyAsDouble(get(op).snapshot()) / 1e3);
+        return out;
+    }
+}
@@ -0,0 +1,44 @@
+package com.pukazhya.oibsip.task1;
+
+import java.util.Map;
+
+/**
+ * ReservationMetricsMXBean.java
+ * JMX view of the ReservationService latency histograms
+ *
+ * Registered by each service as
+ * "com.pukazhya.oibsip.task1:type=ReservationService,name=<data file>" and
+ * readable with jconsole or any JMX client. Maps are keyed by operation:
+ * book, cancel, findByPNR, findByName, save, load and lockWait. Times are in
+ * microseconds and cover everything since startup or the last reset.
+ *
+ * Public only because JMX requires it.
+ */
+public interface ReservationMetricsMXBean {
+    Map<String,Long> getCounts();
+
+    Map<String,Double> getP50Micros();
+
+    Map<String,Double> getP99Micros();
+
+    Map<String,Double> getP999Micros();
+
+    Map<String,Double> getMaxMicros();
+
+    Map<String,Double> getMeanMicros();
+
+    // Acquisitions of a month partition's lock that had to wait, and the time spent waiting
+    long getLockWaitCount();
+
+    double getLockWaitTotalMillis();
+
+    double getLockWaitP99Micros();
+
+    // File the periodic dump appends to, or "" when dumping is off
+    String getDumpFile();
+
+    // Table of every operation, as written to the dump file
+    String report();
+
+    void reset();
+}
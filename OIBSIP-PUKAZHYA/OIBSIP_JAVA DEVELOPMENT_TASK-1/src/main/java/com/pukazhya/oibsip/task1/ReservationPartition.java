@@ -0,0 +1,550 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * ReservationPartition.java
+ * The reservations travelling in one calendar month, with a lock and files of their own
+ *
+ * ReservationService keeps one partition per travel month. Each one owns
+ *  - a columnar store with its name and departure indexes, guarded by its own
+ *    read/write lock, plus the view and counters published from them,
+ *  - its files in "reservations.csv.parts/": base file "yyyy-MM.csv", journal
+ *    segments "yyyy-MM.csv.journal.N" and binary snapshot "yyyy-MM.csv.snap",
+ *    written by a journal writer thread of its own.
+ * Bookings for different months therefore share no lock, journal or writer
+ * queue, and a compaction or archiving run only holds up its own month.
+ * Row numbers are local to the partition.
+ *
+ * The service keeps the business logic (seats, PNRs, fares, counters of the
+ * whole set) and takes {@link #lock} itself around store changes, exactly as it
+ * did with its single lock; loading, compaction and archiving of a month live
+ * here.
+ */
+final class ReservationPartition {
+    private static final Logger LOG = Logger.getLogger(ReservationPartition.class.getName());
+
+    static final String DIR_SUFFIX = ".parts";
+    // base file, snapshot or journal segment of one month
+    private static final Pattern FILE = Pattern.compile("(\\d{4}-\\d{2})\\.csv(?:\\.snap|\\.journal\\.\\d+)?");
+
+    final YearMonth month;
+    // taken with acquireWrite()/acquireRead(), released directly
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // columnar rows + case-insensitive PNR lookup; guarded by lock, replaced when journeys are archived
+    ReservationStore store = new ReservationStore();
+    // passenger-name trigrams -> row numbers; guarded by lock
+    TrigramIndex names = new TrigramIndex();
+    // (train, travel date, class) -> row numbers, for manifests; guarded by lock
+    DepartureIndex departures = new DepartureIndex();
+    // rows per status (lower case) and class; guarded by lock, published with the view
+    private final Map<String,Integer> statusCounts = new HashMap<>();
+    private final Map<String,Integer> classCounts = new HashMap<>();
+    // immutable view of the store, republished before every write-lock release
+    private volatile ReservationStore.View view = store.publish();
+    private volatile ReservationStats stats = ReservationStats.EMPTY;
+    // row encoder for journal appends; only used under the write lock
+    private final ReservationCodec codec = new ReservationCodec();
+
+    private final Path baseFile;
+    private final Path snapshotFile;
+    private final ReservationJournal journal;
+    // started by load()
+    private JournalWriter writer;
+    private final Executor compactor;
+    private final Consumer<IOException> errors;
+    // save times and lock waits are recorded here
+    private final ReservationMetrics metrics;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    // false until a snapshot matching the current base file exists
+    private volatile boolean snapshotCurrent;
+
+    ReservationPartition(Path dataFile, YearMonth month, Executor compactor, Consumer<IOException> errors,
+                         ReservationMetrics metrics) {
+        this.month = month;
+        this.baseFile = dirOf(dataFile).resolve(month + ".csv").toAbsolutePath();
+        this.snapshotFile = BinarySnapshot.pathFor(baseFile);
+        this.journal = new ReservationJournal(baseFile);
+        this.compactor = compactor;
+        this.errors = errors;
+        this.metrics = metrics;
+    }
+
+    static Path dirOf(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + DIR_SUFFIX);
+    }
+
+    // Months with a base file, snapshot or journal segment next to the data file, oldest first
+    static SortedSet<YearMonth> existing(Path dataFile) throws IOException {
+        SortedSet<YearMonth> out = new TreeSet<>();
+        Path dir = dirOf(dataFile);
+        if (!Files.isDirectory(dir)) return out;
+        try (Stream<Path> s = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) s::iterator) {
+                Matcher m = FILE.matcher(p.getFileName().toString());
+                if (!m.matches()) continue;
+                try {
+                    out.add(YearMonth.parse(m.group(1)));
+                } catch (DateTimeParseException e) {
+                    // e.g. "2025-13.csv": not ours
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Read the month (caller holds the write lock): the binary snapshot, or the
+     * base CSV when it is missing or stale, then the journal (a torn last row is
+     * cut off and counted as skipped) and finally rows carried over from
+     * elsewhere (last row per PNR wins). Rows the archive already has are
+     * dropped. Opens the journal and starts the writer; the caller publishes.
+     */
+    CsvFileLoader.Stats load(List<Reservation> carried, ReservationArchive archive) throws IOException {
+        CsvFileLoader.Stats stats = new CsvFileLoader.Stats(0, 0, 0, 0);
+        snapshotCurrent = BinarySnapshot.read(snapshotFile, baseFile, in -> {
+            store.readFrom(in);
+            names.readFrom(in);
+            departures.readFrom(in);
+        });
+        if (snapshotCurrent) {
+            stats = new CsvFileLoader.Stats(store.size(), 0, Files.size(snapshotFile), 0);
+        } else {
+            store.clear();
+            names.clear();
+            departures.clear();
+            if (Files.exists(baseFile)) stats = stats.plus(replay(baseFile));
+        }
+        long torn = journal.truncateTornTail();
+        if (torn >= 0) stats = stats.plus(new CsvFileLoader.Stats(0, 1, 0, 0, "offset " + torn + ": torn journal row removed"));
+        long journaled = 0;
+        for (Path segment : journal.segments()) {
+            CsvFileLoader.Stats s = replay(segment);
+            journaled += s.rows;
+            stats = stats.plus(s);
+        }
+        for (Reservation r : carried) upsert(r);
+        if (!carried.isEmpty()) snapshotCurrent = false;
+        Files.createDirectories(baseFile.getParent());
+        journal.open((int) Math.min(Integer.MAX_VALUE, journaled));
+        writer = new JournalWriter(journal, this::onPersistenceError, "reservation-journal-" + month);
+        if (dropArchivedRows(archive) > 0) snapshotCurrent = false;
+        store.trimToSize();
+        recount();
+        return stats;
+    }
+
+    // Parse a file in parallel, then apply its rows in file order
+    private CsvFileLoader.Stats replay(Path file) throws IOException {
+        CsvFileLoader.Result<Reservation> parsed = CsvFileLoader.load(file, ReservationCodec::new, ForkJoinPool.commonPool());
+        for (Reservation r : parsed.rows) upsert(r);
+        return parsed.stats;
+    }
+
+    // New PNR: append; known PNR: replace its row (loading only)
+    private void upsert(Reservation r) {
+        int at = store.indexOf(r.getPnr());
+        if (at < 0) add(r);
+        else store.set(at, r);
+    }
+
+    // Seats were assigned after the snapshot was written; the next checkpoint writes a new one
+    void invalidateSnapshot() {
+        snapshotCurrent = false;
+    }
+
+    /* ----------------------------
+       Locking
+       ---------------------------- */
+
+    // Take the write lock; only a contended acquisition reads the clock and records its wait
+    void acquireWrite() {
+        if (lock.writeLock().tryLock()) return;
+        long t0 = System.nanoTime();
+        lock.writeLock().lock();
+        metrics.recordSince(ReservationMetrics.Op.LOCK_WAIT, t0);
+    }
+
+    // Take the read lock the same way; the fast path is skipped while threads queue, so waiting writers are not overtaken
+    void acquireRead() {
+        if (!lock.hasQueuedThreads() && lock.readLock().tryLock()) return;
+        long t0 = System.nanoTime();
+        lock.readLock().lock();
+        metrics.recordSince(ReservationMetrics.Op.LOCK_WAIT, t0);
+    }
+
+    /* ----------------------------
+       Rows and counters (caller holds the write lock)
+       ---------------------------- */
+
+    /**
+     * Append to the store and the secondary indexes. Everything that can reject
+     * the row runs before any of them changes, so a rejected row leaves no trace.
+     *
+     * @throws IllegalArgumentException if a value does not fit its column (see {@link ReservationStore#add})
+     * @throws IllegalStateException if a column or the departure index has no code left for a new value
+     */
+    void add(Reservation r) {
+        long departure = departures.keyOf(r.getTrainNo(), r.getTravelDate().toEpochDay(), r.getClassType());
+        int row = store.add(r);
+        departures.add(row, departure);
+        names.add(row, r.getPassenger().getName());
+    }
+
+    // Adjust the counters for one row entering (+1) or leaving (-1) a status/class
+    void count(String status, String classType, int delta) {
+        if (status != null) statusCounts.merge(status.toLowerCase(Locale.ROOT), delta, Integer::sum);
+        if (classType != null) classCounts.merge(classType, delta, Integer::sum);
+    }
+
+    // Counters from scratch, after a load or an archiving run
+    private void recount() {
+        statusCounts.clear();
+        classCounts.clear();
+        for (int i = 0; i < store.size(); i++) count(store.status(i), store.classType(i), 1);
+    }
+
+    // Make the latest rows and counters visible to lock-free readers
+    void publish() {
+        view = store.publish();
+        stats = new ReservationStats(store.size(), statusCounts, classCounts);
+    }
+
+    // Rows as of the last completed write; no lock
+    ReservationStore.View view() {
+        return view;
+    }
+
+    // Rows of this month per status and class as of the last completed write; no lock
+    ReservationStats stats() {
+        return stats;
+    }
+
+    /* ----------------------------
+       Journal and compaction
+       ---------------------------- */
+
+    // Queue a changed record for the journal (caller holds the write lock)
+    CompletableFuture<Void> persist(Reservation r, JournalWriter.Durability durability) {
+        return persistAll(Collections.singletonList(r.getPnr()), Collections.singletonList(codec.encode(r)), durability);
+    }
+
+    // Encode a row for persistAll (caller holds the write lock)
+    String encode(Reservation r) {
+        return codec.encode(r);
+    }
+
+    // Queue encoded rows for the journal in one group (caller holds the write lock)
+    CompletableFuture<Void> persistAll(List<String> pnrs, List<String> rows, JournalWriter.Durability durability) {
+        CompletableFuture<Void> done = writer.submit(pnrs, rows, durability);
+        if (journal.needsCompaction()) scheduleCompaction();
+        return done;
+    }
+
+    // Queue depth, group sizes and commit latency of this month's journal writer
+    JournalWriter.Metrics persistenceMetrics() {
+        return writer.metrics();
+    }
+
+    // Rows that missed the journal are still in memory; a compaction writes them with the base file
+    private void onPersistenceError(IOException e) {
+        errors.accept(e);
+        scheduleCompaction();
+    }
+
+    void scheduleCompaction() {
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                compactionQueued.set(false);
+                save();
+            });
+        }
+    }
+
+    // Fold whatever the journal holds, or write a missing snapshot
+    void checkpoint() {
+        if (journal.hasPending() || !snapshotCurrent) save();
+    }
+
+    /**
+     * Compaction: fold the journal into a fresh base file and binary snapshot.
+     * Only the journal roll runs under the lock; the rows come from the published view.
+     *
+     * @return false if the files could not be written (reported to the error handler)
+     */
+    boolean save() {
+        long t0 = System.nanoTime();
+        try {
+            return compact();
+        } finally {
+            metrics.recordSince(ReservationMetrics.Op.SAVE, t0);
+        }
+    }
+
+    // The compaction itself; save() times it
+    private boolean compact() {
+        ReservationStore.View snapshot;
+        long activeGeneration;
+        acquireWrite();
+        try {
+            snapshot = view;   // matches the journal up to the roll: every write publishes before unlocking
+            activeGeneration = journal.roll();
+        } catch (IOException e) {
+            errors.accept(e);
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            ReservationCodec rowCodec = new ReservationCodec();
+            StringBuilder row = new StringBuilder(192);
+            journal.writeBase(w -> {
+                for (int i = 0; i < snapshot.size(); i++) {
+                    row.setLength(0);
+                    rowCodec.append(snapshot.get(i), row);
+                    w.append(row).append('\n');
+                }
+            });
+            // the name index is rebuilt from the copy so the lock is not held for it
+            TrigramIndex names = new TrigramIndex();
+            DepartureIndex trips = new DepartureIndex();
+            for (int i = 0; i < snapshot.size(); i++) {
+                names.add(i, snapshot.name(i));
+                trips.add(i, snapshot.trainNo(i), snapshot.travelEpochDay(i), snapshot.classType(i));
+            }
+            BinarySnapshot.write(snapshotFile, baseFile, out -> {
+                snapshot.writeTo(out);
+                names.writeTo(out);
+                trips.writeTo(out);
+            });
+            snapshotCurrent = true;
+            journal.discardBefore(activeGeneration);
+            return true;
+        } catch (IOException e) {
+            // sealed segments are kept and replayed on next start
+            errors.accept(e);
+            return false;
+        }
+    }
+
+    // Drain the writer, checkpoint synchronously and close the journal (the compactor is already stopped)
+    void close() {
+        writer.close();
+        checkpoint();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close journal of " + month + ": " + e.getMessage());
+        }
+    }
+
+    // Stop the writer and remove every file of the month (an empty partition found on load)
+    void delete() throws IOException {
+        writer.close();
+        journal.close();
+        for (Path segment : journal.segments()) Files.deleteIfExists(segment);
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(baseFile);
+    }
+
+    /* ----------------------------
+       Archiving
+       ---------------------------- */
+
+    /**
+     * Move every row travelling before cutoffDay into the archive (the caller
+     * runs one archiving pass at a time).
+     *
+     * The segments, the merged PNR index and the renumbered store and indexes
+     * are built from a published view without the lock. The write lock is held
+     * only to replay what changed meanwhile (new bookings, cancellations of live
+     * rows), commit the archive manifest and swap the store in; if an archived
+     * row itself changed, the run is abandoned and retried next time.
+     *
+     * @return rows archived
+     */
+    int archiveBefore(ReservationArchive archive, long cutoffDay) {
+        ReservationStore.View before = view;
+        boolean[] cold = new boolean[before.size()];
+        int n = 0;
+        for (int i = 0; i < before.size(); i++) {
+            if (before.travelEpochDay(i) < cutoffDay) {
+                cold[i] = true;
+                n++;
+            }
+        }
+        if (n == 0) return 0;
+        int[] rows = new int[n];
+        for (int i = 0, k = 0; i < cold.length; i++) if (cold[i]) rows[k++] = i;
+
+        ReservationArchive.Pending pending;
+        try {
+            pending = archive.stage(before, rows, cutoffDay);
+        } catch (IOException e) {
+            errors.accept(e);
+            return 0;
+        }
+        HotTier hot = HotTier.copyOf(before, cold);
+        boolean committed = false;
+        acquireWrite();
+        try {
+            ReservationStore.View now = view;
+            if (!now.continues(before)) return 0;
+            List<Integer> changed = new ArrayList<>();
+            now.forEachChanged(before, changed::add);
+            for (int row : changed) {
+                if (cold[row]) return 0;   // e.g. a late cancellation; the next run picks it up
+            }
+            for (int row : changed) hot.store.set(hot.remap[row], now.get(row));
+            for (int row = before.size(); row < now.size(); row++) hot.add(now.get(row));
+            archive.commit(pending);
+            committed = true;
+            store = hot.store;
+            names = hot.names;
+            departures = hot.trips;
+            snapshotCurrent = false;
+            recount();
+            publish();
+        } catch (IOException e) {
+            errors.accept(e);
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
+            if (!committed) archive.abandon(pending);
+        }
+        // base file and snapshot without the archived rows (until then a restart drops them again)
+        scheduleCompaction();
+        return n;
+    }
+
+    /**
+     * After a crash between an archive commit and the following save, the base
+     * file still holds rows the archive has; drop them (caller holds the write
+     * lock, during load).
+     *
+     * @return rows dropped
+     */
+    private int dropArchivedRows(ReservationArchive archive) throws IOException {
+        if (archive.size() == 0) return 0;
+        ReservationStore.View all = store.publish();
+        List<Integer> past = new ArrayList<>();
+        List<String> pnrs = new ArrayList<>();
+        for (int i = 0; i < all.size(); i++) {
+            if (all.travelEpochDay(i) < archive.cutoffDay()) {
+                past.add(i);
+                pnrs.add(all.pnr(i));
+            }
+        }
+        if (past.isEmpty()) return 0;
+        boolean[] archived = archive.containsAll(pnrs);
+        boolean[] drop = new boolean[all.size()];
+        int n = 0;
+        for (int k = 0; k < archived.length; k++) {
+            if (archived[k]) {
+                drop[past.get(k)] = true;
+                n++;
+            }
+        }
+        if (n == 0) return 0;
+        HotTier hot = HotTier.copyOf(all, drop);
+        store = hot.store;
+        names = hot.names;
+        departures = hot.trips;
+        LOG.info("Dropped " + n + " rows of " + month + " already in the archive");
+        return n;
+    }
+
+    // A fresh store with its indexes, built from the rows of a view that stay live
+    private static final class HotTier {
+        final ReservationStore store = new ReservationStore();
+        final TrigramIndex names = new TrigramIndex();
+        final DepartureIndex trips = new DepartureIndex();
+        final int[] remap;   // row in the source view -> row here, -1 if left out
+
+        private HotTier(int sourceRows) {
+            remap = new int[sourceRows];
+        }
+
+        static HotTier copyOf(ReservationStore.View v, boolean[] leaveOut) {
+            HotTier t = new HotTier(v.size());
+            for (int i = 0; i < v.size(); i++) {
+                t.remap[i] = leaveOut[i] ? -1 : t.add(v.get(i));
+            }
+            return t;
+        }
+
+        int add(Reservation r) {
+            long departure = trips.keyOf(r.getTrainNo(), r.getTravelDate().toEpochDay(), r.getClassType());
+            int row = store.add(r);
+            trips.add(row, departure);
+            names.add(row, r.getPassenger().getName());
+            return row;
+        }
+    }
+
+    /* ----------------------------
+       Reads
+       ---------------------------- */
+
+    /**
+     * Best name matches of this month, at most limit, best first (see
+     * {@link ReservationService#nameScore}); ties go to the newest row.
+     * Only the index lookup holds the read lock.
+     */
+    List<Reservation> findByName(String q, int limit) {
+        int[] ids;
+        ReservationStore.View v;
+        acquireRead();
+        try {
+            v = view;
+            ids = names.search(q, v::name);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // bounded max-heap on the packed (score, age) key keeps only the best `limit` hits
+        PriorityQueue<Long> best = new PriorityQueue<>(Math.min(limit, Math.max(1, ids.length)), Collections.reverseOrder());
+        for (int id : ids) {
+            int score = ReservationService.nameScore(q, v.name(id), v.isCancelled(id));
+            long key = ((long) score << 32) | (Integer.MAX_VALUE - id);
+            if (best.size() < limit) best.add(key);
+            else if (key < best.peek()) { best.poll(); best.add(key); }
+        }
+        long[] keys = best.stream().mapToLong(Long::longValue).sorted().toArray();
+        List<Reservation> out = new ArrayList<>(keys.length);
+        for (long k : keys) out.add(v.get(Integer.MAX_VALUE - (int) k));
+        return out;
+    }
+
+    // Approximate bytes held by the reservation columns
+    long footprintBytes() {
+        acquireRead();
+        try {
+            return store.footprintBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.pukazhya.oibsip.task1;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * ReservationQuery.java
+ * Immutable filter over reservations, run page by page with
+ * {@link ReservationService#query(ReservationQuery, String, int)}
+ *
+ *   ReservationQuery q = ReservationQuery.all().train("22401").travelBetween(d1, d2).status("Booked");
+ *   for (String cursor = null; ; ) {
+ *       ReservationQuery.Page page = service.query(q, cursor, 500);
+ *       ...
+ *       if ((cursor = page.next) == null) break;
+ *   }
+ *
+ * Every filter is optional and they combine with AND. Train and class match
+ * exactly (trimmed), status and station (from or to) ignore case, name is a
+ * case-insensitive substring like the name search, dates are inclusive.
+ *
+ * Results come in travel-month order and in booking order within a month (each
+ * month is a partition with its own row numbers), so a cursor is just the
+ * month and row last returned plus a fingerprint of the query it belongs to:
+ * it stays valid while bookings and cancellations go on, and a page never
+ * repeats or skips a row that already existed. Rows booked later show up on
+ * later pages unless their month has been passed. Months outside the travel
+ * dates are never read. Archiving renumbers the live rows, so a cursor also
+ * carries the archive generation and is refused once completed journeys have
+ * been archived since.
+ *
+ * Queries cover the live set; archived journeys are only reachable by PNR.
+ */
+final class ReservationQuery {
+    // How a page finds its candidate rows
+    enum Access { SCAN, DEPARTURE_INDEX, NAME_INDEX }
+
+    final String status;
+    final String classType;
+    final String trainNo;
+    final LocalDate fromDate;
+    final LocalDate toDate;
+    final String station;
+    final String name;          // normalized (TrigramIndex.normalize)
+
+    private static final ReservationQuery ALL = new ReservationQuery(null, null, null, null, null, null, null);
+
+    private ReservationQuery(String status, String classType, String trainNo, LocalDate fromDate, LocalDate toDate,
+                             String station, String name) {
+        this.status = status;
+        this.classType = classType;
+        this.trainNo = trainNo;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.station = station;
+        this.name = name;
+    }
+
+    static ReservationQuery all() { return ALL; }
+
+    // Each filter replaces the previous value; null or blank removes it
+    ReservationQuery status(String s) { return new ReservationQuery(clean(s), classType, trainNo, fromDate, toDate, station, name); }
+    ReservationQuery classType(String c) { return new ReservationQuery(status, clean(c), trainNo, fromDate, toDate, station, name); }
+    ReservationQuery train(String t) { return new ReservationQuery(status, classType, clean(t), fromDate, toDate, station, name); }
+    ReservationQuery station(String s) { return new ReservationQuery(status, classType, trainNo, fromDate, toDate, clean(s), name); }
+    ReservationQuery travelBetween(LocalDate from, LocalDate to) { return new ReservationQuery(status, classType, trainNo, from, to, station, name); }
+
+    ReservationQuery name(String n) {
+        String q = TrigramIndex.normalize(n);
+        return new ReservationQuery(status, classType, trainNo, fromDate, toDate, station, q.isEmpty() ? null : q);
+    }
+
+    // Travel-day bounds as epoch days (open ends become the widest day the indexes accept)
+    long firstDay() { return fromDate == null ? Integer.MIN_VALUE : fromDate.toEpochDay(); }
+    long lastDay() { return toDate == null ? Integer.MAX_VALUE : toDate.toEpochDay(); }
+
+    // Every filter, checked against the columns of one row without materializing it
+    boolean matches(ReservationStore.View v, int row) {
+        if (trainNo != null && !trainNo.equals(v.trainNo(row))) return false;
+        if (classType != null && !classType.equals(v.classType(row))) return false;
+        if (fromDate != null || toDate != null) {
+            long d = v.travelEpochDay(row);
+            if (d < firstDay() || d > lastDay()) return false;
+        }
+        if (status != null && !status.equalsIgnoreCase(v.status(row))) return false;
+        if (station != null && !station.equalsIgnoreCase(v.from(row)) && !station.equalsIgnoreCase(v.to(row))) return false;
+        return name == null || TrigramIndex.normalize(v.name(row)).contains(name);
+    }
+
+    /* ----------------------------
+       Cursors
+       ---------------------------- */
+
+    // Opaque token: base-36 month index, row after which the next page starts, archive generation and query fingerprint
+    String cursorAfter(YearMonth month, int row, int generation) {
+        return Integer.toString(month.getYear() * 12 + month.getMonthValue() - 1, 36) + "." + Integer.toString(row, 36)
+                + "." + Integer.toString(generation, 36) + "." + Long.toString(fingerprint(), 36);
+    }
+
+    // Where the cursor points; null for null (first page)
+    Position positionAfter(String cursor, int generation) {
+        if (cursor == null || cursor.isEmpty()) return null;
+        String[] parts = cursor.split("\\.");
+        try {
+            if (parts.length != 4 || Long.parseLong(parts[3], 36) != fingerprint()) {
+                throw new IllegalArgumentException("Cursor belongs to a different query");
+            }
+            if (Integer.parseInt(parts[2], 36) != generation) {
+                throw new IllegalArgumentException("Cursor expired: completed journeys were archived since");
+            }
+            int month = Integer.parseInt(parts[0], 36);
+            int row = Integer.parseInt(parts[1], 36);
+            if (month < 0 || row < 0) throw new IllegalArgumentException("Bad cursor: " + cursor);
+            return new Position(YearMonth.of(month / 12, month % 12 + 1), row);
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new IllegalArgumentException("Bad cursor: " + cursor);
+        }
+    }
+
+    // Last row of a page: month partition and row within it
+    static final class Position {
+        final YearMonth month;
+        final int row;
+
+        Position(YearMonth month, int row) {
+            this.month = month;
+            this.row = row;
+        }
+    }
+
+    private long fingerprint() {
+        CRC32 crc = new CRC32();
+        crc.update(toString().getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "status=" + status + " class=" + classType + " train=" + trainNo + " travel=" + fromDate + ".." + toDate
+                + " station=" + station + " name=" + name;
+    }
+
+    private static String clean(String s) {
+        return s == null || s.trim().isEmpty() ? null : s.trim();
+    }
+
+    // One page of results
+    static final class Page {
+        final List<Reservation> rows;
+        final String next;          // cursor of the following page; null when this is the last
+        final Access access;        // path that checked the most rows across the months read
+        final Map<YearMonth, Access> paths; // path taken in each month the page read, oldest first
+        final int candidates;       // rows the chosen access paths had to check
+
+        Page(List<Reservation> rows, String next, Access access, Map<YearMonth, Access> paths, int candidates) {
+            this.rows = Collections.unmodifiableList(rows);
+            this.next = next;
+            this.access = access;
+            this.paths = Collections.unmodifiableMap(paths);
+            this.candidates = candidates;
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.pukazhya.oibsip.task1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReservationServer.java
+ * Headless JSON endpoints over {@link ReservationService}
+ *
+ *   POST /api/bookings                 {"name","age","trainNo","classType","from","to","travelDate"[,"berth"]}
+ *                                      201 reservation (status Booked, or Waitlisted with no seat
+ *                                      when the class is full) | 400 invalid | 409 waitlist full
+ *   GET  /api/bookings/{pnr}           200 reservation | 404
+ *   POST /api/bookings/{pnr}/cancel    {"reason"} -> 200 reservation | 404 | 409 already cancelled
+ *   GET  /api/bookings?name=..[&limit=n]  200 [reservation...] (ranked like the GUI search)
+ *   GET  /api/manifest?train=..&from=yyyy-MM-dd[&to=..][&class=..][&cancelled=true]
+ *                                      200 [reservation...] by date, class, booking order
+ *   GET  /api/query?[status=][&class=][&train=][&from=][&to=][&station=][&name=][&limit=n][&cursor=c]
+ *                                      200 {"rows":[reservation...],"next":cursor|null,"access",
+ *                                      "paths":{"yyyy-MM":access...},"checked"}
+ *   GET  /api/stats                    200 totals per status and class
+ *
+ * A booking or cancellation is answered only once its journal row reaches the
+ * server's durability (WAIT_FOR_WRITE by default, or WAIT_FOR_FSYNC), so a
+ * failed write comes back as 503 instead of a success that is later lost.
+ *
+ * Requests run on one virtual thread each when the JDK has them (21+, looked up
+ * reflectively so the build stays on 17), otherwise on a bounded platform pool;
+ * the service itself is thread-safe and readers never block on writers.
+ * Nothing here touches AWT, so the server runs on machines without a display.
+ */
+final class ReservationServer {
+    static final int DEFAULT_PORT = 8080;
+    static final JournalWriter.Durability DEFAULT_DURABILITY = JournalWriter.Durability.WAIT_FOR_WRITE;
+    // platform-thread fallback: enough to overlap fsync waits, small enough to stay cheap
+    private static final int FALLBACK_THREADS = 256;
+    private static final int BACKLOG = 4096;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final int MAX_PAGE = 1000;
+
+    private final ReservationService service;
+    private final JournalWriter.Durability durability;
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    ReservationServer(ReservationService service, InetSocketAddress address) throws IOException {
+        this(service, address, DEFAULT_DURABILITY);
+    }
+
+    ReservationServer(ReservationService service, InetSocketAddress address, JournalWriter.Durability durability) throws IOException {
+        if (durability == JournalWriter.Durability.FIRE_AND_FORGET) {
+            // the reply would go out before the write, so a failed write could never be reported
+            throw new IllegalArgumentException("The server needs WAIT_FOR_WRITE or WAIT_FOR_FSYNC");
+        }
+        this.service = service;
+        this.durability = durability;
+        this.http = HttpServer.create(address, BACKLOG);
+        this.executor = newExecutor();
+        http.setExecutor(executor);
+        http.createContext("/api/bookings", this::bookings);
+        http.createContext("/api/manifest", this::manifest);
+        http.createContext("/api/query", this::find);
+        http.createContext("/api/stats", this::stats);
+    }
+
+    void start() {
+        http.start();
+    }
+
+    int port() {
+        return http.getAddress().getPort();
+    }
+
+    // Stop accepting, give in-flight requests up to delaySeconds, then stop the workers
+    void stop(int delaySeconds) {
+        http.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Virtual thread per task on JDK 21+, else a fixed pool of daemon threads
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+                Thread t = new Thread(r, "reservation-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /* ----------------------------
+       Handlers
+       ---------------------------- */
+
+    private void bookings(HttpExchange ex) throws IOException {
+        try {
+            String path = ex.getRequestURI().getPath();
+            String[] parts = path.substring("/api/bookings".length()).split("/");
+            // parts[0] is "" (leading slash or no suffix)
+            String method = ex.getRequestMethod();
+            if (parts.length > 0 && !parts[0].isEmpty()) {
+                send(ex, 404, error("No such endpoint: " + method + " " + path));
+            } else if (parts.length <= 1) {
+                if ("POST".equals(method)) book(ex);
+                else if ("GET".equals(method)) search(ex);
+                else send(ex, 405, error("Use GET or POST"));
+            } else if (parts.length == 2 && "GET".equals(method)) {
+                Reservation r = service.findByPNR(parts[1]);
+                if (r == null) send(ex, 404, error("PNR not found: " + parts[1]));
+                else send(ex, 200, toJson(r));
+            } else if (parts.length == 3 && "cancel".equals(parts[2]) && "POST".equals(method)) {
+                cancel(ex, parts[1]);
+            } else {
+                send(ex, 404, error("No such endpoint: " + method + " " + path));
+            }
+        } catch (BadRequest e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (UncheckedIOException e) {
+            // the change stays in memory and goes out with the next compaction
+            send(ex, 503, error("Change not persisted: " + e.getCause().getMessage()));
+        } catch (RuntimeException e) {
+            send(ex, 500, error(e.toString()));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void book(HttpExchange ex) throws IOException {
+        Map<String,String> in = Json.parseObject(body(ex));
+        String trainNo = required(in, "trainNo");
+        int age;
+        LocalDate date;
+        SeatInventory.Berth berth;
+        try {
+            age = Integer.parseInt(required(in, "age"));
+            date = LocalDate.parse(required(in, "travelDate"));
+            berth = SeatInventory.Berth.valueOf(in.getOrDefault("berth", "ANY").trim().toUpperCase(Locale.ROOT));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new BadRequest("Bad age or travelDate (yyyy-MM-dd)");
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest("Unknown berth; use one of " + Arrays.toString(SeatInventory.Berth.values()));
+        }
+        if (date.isBefore(LocalDate.now())) throw new BadRequest("Travel date is in the past");
+        String trainName = service.getTrains().getOrDefault(trainNo.trim(), trainNo.trim());
+        BookingRequest q = new BookingRequest(required(in, "name"), age, trainNo.trim(), trainName,
+                required(in, "classType"), required(in, "from"), required(in, "to"), date, berth);
+        String invalid = service.validate(q);
+        if (invalid != null) throw new BadRequest(invalid);
+        Reservation r;
+        try {
+            r = service.book(q.name.trim(), q.age, q.trainNo, q.trainName, q.classType, q.from, q.to, q.travelDate, q.berth, durability);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // the store rejected a value (e.g. one new station too many); nothing was booked
+            throw new BadRequest(e.getMessage());
+        }
+        if (r != null) send(ex, 201, toJson(r));
+        else send(ex, 409, error("No seats left in " + q.classType + " on " + q.trainNo + " for " + q.travelDate + " and the waitlist is full"));
+    }
+
+    private void cancel(HttpExchange ex, String pnr) throws IOException {
+        Map<String,String> in = Json.parseObject(body(ex));
+        String reason = required(in, "reason").trim();
+        if (reason.length() < 3) throw new BadRequest("Cancellation reason required");
+        if (service.cancel(pnr, reason, durability)) {
+            send(ex, 200, toJson(service.findByPNR(pnr)));
+        } else {
+            Reservation r = service.findByPNR(pnr);
+            if (r == null) send(ex, 404, error("PNR not found: " + pnr));
+            else send(ex, 409, error("Already cancelled"));
+        }
+    }
+
+    private void search(HttpExchange ex) throws IOException {
+        Map<String,String> q = query(ex);
+        String name = q.get("name");
+        if (name == null || name.trim().isEmpty()) throw new BadRequest("name query parameter required");
+        int limit = ReservationService.NAME_SEARCH_LIMIT;
+        if (q.containsKey("limit")) {
+            try {
+                limit = Math.max(1, Math.min(1000, Integer.parseInt(q.get("limit"))));
+            } catch (NumberFormatException e) {
+                throw new BadRequest("Bad limit");
+            }
+        }
+        send(ex, 200, toJson(service.findByName(name, limit)));
+    }
+
+    private void manifest(HttpExchange ex) throws IOException {
+        try {
+            if (!"GET".equals(ex.getRequestMethod())) {
+                send(ex, 405, error("Use GET"));
+                return;
+            }
+            Map<String,String> q = query(ex);
+            String train = q.get("train");
+            if (train == null || train.trim().isEmpty()) throw new BadRequest("train query parameter required");
+            LocalDate from, to;
+            try {
+                from = LocalDate.parse(q.getOrDefault("from", ""));
+                to = q.containsKey("to") ? LocalDate.parse(q.get("to")) : from;
+            } catch (DateTimeParseException e) {
+                throw new BadRequest("Bad from/to date (yyyy-MM-dd)");
+            }
+            boolean cancelled = Boolean.parseBoolean(q.get("cancelled"));
+            send(ex, 200, toJson(service.manifest(train.trim(), from, to, q.get("class"), cancelled)));
+        } catch (BadRequest e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(ex, 500, error(e.toString()));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void find(HttpExchange ex) throws IOException {
+        try {
+            if (!"GET".equals(ex.getRequestMethod())) {
+                send(ex, 405, error("Use GET"));
+                return;
+            }
+            Map<String,String> p = query(ex);
+            ReservationQuery q;
+            int limit;
+            try {
+                q = ReservationQuery.all().status(p.get("status")).classType(p.get("class")).train(p.get("train"))
+                        .station(p.get("station")).name(p.get("name"))
+                        .travelBetween(date(p.get("from")), date(p.get("to")));
+                limit = Math.max(1, Math.min(MAX_PAGE, Integer.parseInt(p.getOrDefault("limit", "100"))));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new BadRequest("Bad limit or from/to date (yyyy-MM-dd)");
+            }
+            ReservationQuery.Page page;
+            try {
+                page = service.query(q, p.get("cursor"), limit);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequest(e.getMessage());
+            }
+            StringBuilder sb = new StringBuilder(page.rows.size() * 256 + 96).append("{\"rows\":[");
+            for (int i = 0; i < page.rows.size(); i++) {
+                if (i > 0) sb.append(',');
+                appendJson(page.rows.get(i), sb);
+            }
+            sb.append("],\"next\":");
+            if (page.next == null) sb.append("null");
+            else Json.quote(page.next, sb);
+            sb.append(",\"access\":\"").append(page.access).append("\",\"paths\":{");
+            String sep = "";
+            for (Map.Entry<YearMonth, ReservationQuery.Access> e : page.paths.entrySet()) {
+                sb.append(sep).append('"').append(e.getKey()).append("\":\"").append(e.getValue()).append('"');
+                sep = ",";
+            }
+            sb.append("},\"checked\":").append(page.candidates).append('}');
+            send(ex, 200, sb.toString());
+        } catch (BadRequest e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(ex, 500, error(e.toString()));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private static LocalDate date(String s) {
+        return s == null || s.trim().isEmpty() ? null : LocalDate.parse(s.trim());
+    }
+
+    private void stats(HttpExchange ex) throws IOException {
+        try {
+            ReservationStats s = service.getStats();
+            StringBuilder sb = new StringBuilder("{\"total\":").append(s.getTotal()).append(",\"byStatus\":");
+            appendCounts(s.getByStatus(), sb);
+            sb.append(",\"byClass\":");
+            appendCounts(s.getByClass(), sb);
+            send(ex, 200, sb.append('}').toString());
+        } finally {
+            ex.close();
+        }
+    }
+
+    /* ----------------------------
+       Helpers
+       ---------------------------- */
+
+    private static String body(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] b = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (b.length > MAX_BODY_BYTES) throw new BadRequest("Request body too large");
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String,String> query(HttpExchange ex) {
+        Map<String,String> out = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            out.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static String required(Map<String,String> in, String key) {
+        String v = in.get(key);
+        if (v == null || v.trim().isEmpty()) throw new BadRequest("Missing field: " + key);
+        return v;
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, b.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(b);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        Json.quote(message, sb);
+        return sb.append('}').toString();
+    }
+
+    static String toJson(Reservation r) {
+        StringBuilder sb = new StringBuilder(256);
+        appendJson(r, sb);
+        return sb.toString();
+    }
+
+    static String toJson(List<Reservation> rs) {
+        StringBuilder sb = new StringBuilder(rs.size() * 256 + 2).append('[');
+        for (int i = 0; i < rs.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendJson(rs.get(i), sb);
+        }
+        return sb.append(']').toString();
+    }
+
+    static void appendJson(Reservation r, StringBuilder sb) {
+        sb.append("{\"pnr\":");
+        Json.quote(r.getPnr(), sb);
+        sb.append(",\"name\":");
+        Json.quote(r.getPassenger().getName(), sb);
+        sb.append(",\"age\":").append(r.getPassenger().getAge());
+        sb.append(",\"trainNo\":");
+        Json.quote(r.getTrainNo(), sb);
+        sb.append(",\"trainName\":");
+        Json.quote(r.getTrainName(), sb);
+        sb.append(",\"classType\":");
+        Json.quote(r.getClassType(), sb);
+        sb.append(",\"from\":");
+        Json.quote(r.getFrom(), sb);
+        sb.append(",\"to\":");
+        Json.quote(r.getTo(), sb);
+        sb.append(",\"travelDate\":\"").append(r.getTravelDate()).append('"');
+        sb.append(",\"bookedAt\":\"").append(r.getBookingTime()).append('"');
+        sb.append(",\"fare\":").append(r.getFare());
+        sb.append(",\"seat\":");
+        Json.quote(r.getSeat(), sb);
+        sb.append(",\"status\":");
+        Json.quote(r.getStatus(), sb);
+        if (!r.getCancelReason().isEmpty()) {
+            sb.append(",\"cancelReason\":");
+            Json.quote(r.getCancelReason(), sb);
+        }
+        sb.append('}');
+    }
+
+    private static void appendCounts(Map<String,Integer> counts, StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String,Integer> e : counts.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            Json.quote(e.getKey(), sb);
+            sb.append(':').append(e.getValue());
+        }
+        sb.append('}');
+    }
+
+    // Client error; answered with 400
+    private static final class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Just enough JSON for flat request objects: string, number, true/false/null
+     * values (numbers and literals come back as their text). Nested values are rejected.
+     */
+    static final class Json {
+        private final String s;
+        private int i;
+
+        private Json(String s) {
+            this.s = s;
+        }
+
+        static Map<String,String> parseObject(String text) {
+            Json p = new Json(text);
+            Map<String,String> out = new HashMap<>();
+            p.expect('{');
+            if (p.peek() == '}') {
+                p.i++;
+                return p.end(out);
+            }
+            while (true) {
+                String key = p.string();
+                p.expect(':');
+                out.put(key, p.value());
+                char c = p.next();
+                if (c == '}') return p.end(out);
+                if (c != ',') throw new BadRequest("Malformed JSON at " + (p.i - 1));
+            }
+        }
+
+        static void quote(String v, StringBuilder sb) {
+            sb.append('"');
+            for (int k = 0; k < v.length(); k++) {
+                char c = v.charAt(k);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+
+        private Map<String,String> end(Map<String,String> out) {
+            if (peek() != 0) throw new BadRequest("Trailing data after JSON object");
+            return out;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw new BadRequest("Nested JSON values are not supported");
+            int start = i;
+            while (i < s.length() && ",}] \t\r\n".indexOf(s.charAt(i)) < 0) i++;
+            if (start == i) throw new BadRequest("Malformed JSON at " + i);
+            String lit = s.substring(start, i);
+            return "null".equals(lit) ? null : lit;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (i < s.length()) {
+                char c = s.charAt(i++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (i >= s.length()) break;
+                char e = s.charAt(i++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 > s.length()) throw new BadRequest("Bad \\u escape");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new BadRequest("Bad \\u escape");
+                        }
+                        i += 4;
+                        break;
+                    default: sb.append(e);   // \" \\ \/
+                }
+            }
+            throw new BadRequest("Unterminated JSON string");
+        }
+
+        private void expect(char c) {
+            if (next() != c) throw new BadRequest("Expected '" + c + "' at " + (i - 1));
+        }
+
+        // Next non-blank character (consumed); 0 at the end
+        private char next() {
+            char c = peek();
+            if (c != 0) i++;
+            return c;
+        }
+
+        private char peek() {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            return i < s.length() ? s.charAt(i) : 0;
+        }
+    }
+}
@@ -1 +1,1056 @@
-package com.oibsip.reservation;
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * ReservationService.java
+ * Service: persistence, fare, PNR
+ */
+class ReservationService {
+    // startup, import and archiving notes; errors go to the persistence error handler
+    private static final Logger LOG = Logger.getLogger(ReservationService.class.getName());
+
+    private final Path dataFile;
+    // one partition per travel month, each with its own store, indexes, lock and files (ReservationPartition)
+    private final ConcurrentSkipListMap<YearMonth, ReservationPartition> partitions = new ConcurrentSkipListMap<>();
+    // held only while a month seen for the first time gets its partition
+    private final Object opening = new Object();
+    // told (outside any lock) after every booking, cancellation and load
+    private final List<Consumer<ReservationStats>> changeListeners = new CopyOnWriteArrayList<>();
+    // sold berths per train/date/class; lock-free, updated before the row is stored
+    private final SeatInventory seats = new SeatInventory();
+    // bookings made while their class was full, per train/date/class; promoted when a berth is freed
+    private final Waitlist waitlist = new Waitlist();
+    // bookings a departure's waitlist takes before book() refuses; -Dwaitlist.limit=0 turns waitlisting off
+    static final int WAITLIST_LIMIT = Integer.getInteger("waitlist.limit", 100_000);
+
+    static final int NAME_SEARCH_LIMIT = 50;
+
+    private final DateTimeFormatter dtfFull = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final DateTimeFormatter dtfDate = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // PNRs are unique by construction; set -Dpnr.node=N (0..30) per process sharing a data file
+    private final PnrGenerator pnrGenerator = new PnrGenerator(Integer.getInteger("pnr.node", 0));
+    // rows at the end of each month checked against the generator on load (newest bookings)
+    private static final int PNR_OBSERVE_ROWS = 4096;
+
+    // used by the overloads without a durability argument: bookings never wait for the disk
+    static final JournalWriter.Durability DEFAULT_DURABILITY = JournalWriter.Durability.FIRE_AND_FORGET;
+    private volatile Consumer<IOException> persistenceErrors =
+            e -> System.err.println("Failed to save reservations: " + e.getMessage());
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reservation-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static final long CHECKPOINT_INTERVAL_MINUTES = 5;
+    private volatile CsvFileLoader.Stats loadStats;
+
+    // completed journeys, moved out of the live set (cold tier); reached by PNR only
+    private final ReservationArchive archive;
+    // journeys are archived once their travel date is this many days past; -Darchive.afterDays=-1 disables
+    static final int ARCHIVE_AFTER_DAYS = Integer.getInteger("archive.afterDays", 1);
+    static final long ARCHIVE_INTERVAL_MINUTES = 6 * 60;
+    private static final long ARCHIVE_FIRST_RUN_MINUTES = 10;
+    // one archiving run at a time (scheduled or called directly)
+    private final Object archiving = new Object();
+
+    // latency histograms of the public operations, lock waits, saves and loads; published over JMX
+    private final ReservationMetrics metrics = new ReservationMetrics();
+    // -Dmetrics.dumpSeconds=N appends the latency table to "<data file>.metrics" every N seconds (0 = off)
+    static final long METRICS_DUMP_SECONDS = Long.getLong("metrics.dumpSeconds", 0);
+
+    // trains, stops and stop distances (routes.csv)
+    private final RouteCatalog catalog;
+    static final int FARE_CACHE_SIZE = 4096;
+    private final FareQuoteCache fareQuotes = new FareQuoteCache(FARE_CACHE_SIZE);
+
+    ReservationService(Path dataFile) throws IOException {
+        this.dataFile = dataFile;
+        this.catalog = RouteCatalog.load(dataFile);
+        this.archive = ReservationArchive.open(dataFile);
+        load();
+        metrics.register(dataFile);
+        if (METRICS_DUMP_SECONDS > 0) {
+            metrics.setDumpFile(dataFile.resolveSibling(dataFile.getFileName() + ".metrics"));
+            compactor.scheduleWithFixedDelay(metrics::dump, METRICS_DUMP_SECONDS, METRICS_DUMP_SECONDS, TimeUnit.SECONDS);
+        }
+        compactor.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_INTERVAL_MINUTES, CHECKPOINT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        if (ARCHIVE_AFTER_DAYS >= 0) {
+            compactor.scheduleWithFixedDelay(this::archiveCompleted, ARCHIVE_FIRST_RUN_MINUTES, ARCHIVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    // Train number -> name, in catalogue order
+    Map<String,String> getTrains() {
+        Map<String,String> out = new LinkedHashMap<>();
+        for (TrainRoute r : catalog.routes().values()) out.put(r.getTrainNo(), r.getName());
+        return Collections.unmodifiableMap(out);
+    }
+
+    // Route of a catalogued train, or null
+    TrainRoute getRoute(String trainNo) {
+        return catalog.route(trainNo);
+    }
+
+    // Every catalogued station, sorted
+    List<String> getStations() {
+        return catalog.stations();
+    }
+
+    // Segments a journey occupies; uncatalogued trains and stations take the whole run
+    private long segments(String trainNo, String from, String to) {
+        TrainRoute route = getRoute(trainNo);
+        return route == null ? SeatInventory.WHOLE_RUN : route.segments(from, to);
+    }
+
+    /**
+     * Load every month partition in parallel (each: binary snapshot or base CSV,
+     * then its journal tail), seating upcoming rows as it goes.
+     *
+     * A data file in the single-file layout used before partitions (the base
+     * CSV and its journal, e.g. a generated dataset) is read first and its rows
+     * are carried into the partitions of their travel months. Once those are
+     * written, the file is kept as "reservations.csv.imported" and its journal
+     * and snapshot are removed, so it is imported exactly once.
+     */
+    private void load() throws IOException {
+        long t0 = System.nanoTime();
+        CsvFileLoader.Stats stats = new CsvFileLoader.Stats(0, 0, 0, 0);
+        ReservationJournal legacyJournal = new ReservationJournal(dataFile);
+        List<Path> legacy = new ArrayList<>();
+        if (Files.isRegularFile(dataFile)) legacy.add(dataFile);
+        legacy.addAll(legacyJournal.segments());
+        Map<YearMonth, List<Reservation>> carried = new TreeMap<>();
+        for (Path file : legacy) {
+            CsvFileLoader.Result<Reservation> parsed = CsvFileLoader.load(file, ReservationCodec::new, ForkJoinPool.commonPool());
+            for (Reservation r : parsed.rows) carried.computeIfAbsent(YearMonth.from(r.getTravelDate()), m -> new ArrayList<>()).add(r);
+            stats = stats.plus(parsed.stats);
+        }
+
+        SortedSet<YearMonth> months = ReservationPartition.existing(dataFile);
+        months.addAll(carried.keySet());
+        seats.clear();
+        waitlist.clear();
+        int[] assigned = new int[1];
+        List<ForkJoinTask<CsvFileLoader.Stats>> tasks = new ArrayList<>(months.size());
+        for (YearMonth month : months) {
+            ReservationPartition p = newPartition(month);
+            partitions.put(month, p);
+            List<Reservation> rows = carried.getOrDefault(month, Collections.emptyList());
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                CsvFileLoader.Stats s = loadPartition(p, rows);
+                int n = rebuildSeats(p);
+                synchronized (assigned) {
+                    assigned[0] += n;
+                }
+                return s;
+            }));
+        }
+        try {
+            for (ForkJoinTask<CsvFileLoader.Stats> task : tasks) stats = stats.plus(task.join());
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof IOException) throw (IOException) ex.getCause();
+            throw ex;
+        }
+        if (assigned[0] > 0) LOG.info("Assigned seats to " + assigned[0] + " earlier bookings");
+
+        // months emptied by archiving leave nothing behind
+        for (ReservationPartition p : new ArrayList<>(partitions.values())) {
+            if (p.view().size() == 0 && !carried.containsKey(p.month)) {
+                partitions.remove(p.month);
+                p.delete();
+            }
+        }
+        if (!legacy.isEmpty()) {
+            boolean written = true;
+            for (YearMonth month : carried.keySet()) {
+                ReservationPartition p = partitions.get(month);
+                if (p != null) written &= p.save();
+            }
+            // otherwise imported again on the next start (rows are matched by PNR)
+            if (written) {
+                if (Files.isRegularFile(dataFile)) {
+                    Files.move(dataFile, dataFile.resolveSibling(dataFile.getFileName() + ".imported"), StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.deleteIfExists(BinarySnapshot.pathFor(dataFile));
+                for (Path segment : legacyJournal.segments()) Files.deleteIfExists(segment);
+            }
+        }
+        fireChanged();
+        // report wall-clock startup time, including index building
+        loadStats = new CsvFileLoader.Stats(stats.rows, stats.skipped, stats.bytes, System.nanoTime() - t0);
+        LOG.info("Loaded " + partitions.size() + " month partitions" + (legacy.isEmpty() ? "" : " (imported " + dataFile.getFileName() + ")") + ": " + loadStats);
+    }
+
+    private ReservationPartition newPartition(YearMonth month) {
+        return new ReservationPartition(dataFile, month, compactor, this::onPersistenceError, metrics);
+    }
+
+    // Read one month and publish it; its PNRs raise the generator. Each month is one load sample
+    private CsvFileLoader.Stats loadPartition(ReservationPartition p, List<Reservation> carried) throws IOException {
+        long t0 = System.nanoTime();
+        p.acquireWrite();
+        try {
+            CsvFileLoader.Stats s = p.load(carried, archive);
+            for (int i = Math.max(0, p.store.size() - PNR_OBSERVE_ROWS); i < p.store.size(); i++) {
+                pnrGenerator.observe(p.store.pnr(i));
+            }
+            p.publish();
+            return s;
+        } finally {
+            p.lock.writeLock().unlock();
+            metrics.recordSince(ReservationMetrics.Op.LOAD, t0);
+        }
+    }
+
+    /**
+     * Partition of a travel month, opened (empty, files created on first write)
+     * the first time the month is booked.
+     *
+     * @throws UncheckedIOException if its journal cannot be opened
+     */
+    private ReservationPartition partitionFor(YearMonth month) {
+        ReservationPartition p = partitions.get(month);
+        if (p != null) return p;
+        synchronized (opening) {
+            p = partitions.get(month);
+            if (p != null) return p;
+            p = newPartition(month);
+            try {
+                loadPartition(p, Collections.emptyList());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            partitions.put(month, p);
+            return p;
+        }
+    }
+
+    // Partition whose published view holds the PNR (latest months first), or null
+    private ReservationPartition partitionOf(String pnr) {
+        for (ReservationPartition p : partitions.descendingMap().values()) {
+            if (p.view().indexOf(pnr) >= 0) return p;
+        }
+        return null;
+    }
+
+    /**
+     * Mark the berths of every active upcoming booking of the month as sold
+     * and queue its upcoming waitlisted bookings in booking order (the month's
+     * departures are its own, so months run this in parallel).
+     * Rows without a usable seat (older files, duplicates) get the first free berth.
+     *
+     * @return number of rows that were given a new seat
+     */
+    private int rebuildSeats(ReservationPartition p) {
+        long today = LocalDate.now().toEpochDay();
+        List<Integer> unseated = new ArrayList<>();
+        int assigned = 0;
+        p.acquireWrite();
+        try {
+            ReservationStore reservations = p.store;
+            for (int i = 0; i < reservations.size(); i++) {
+                if (reservations.travelEpochDay(i) < today || reservations.isCancelled(i)) continue;
+                LocalDate day = LocalDate.ofEpochDay(reservations.travelEpochDay(i));
+                long legs = segments(reservations.trainNo(i), reservations.from(i), reservations.to(i));
+                if (isWaitlisted(reservations.status(i))) {
+                    waitlist.add(reservations.trainNo(i), day, reservations.classType(i), reservations.pnr(i), legs);
+                    continue;
+                }
+                if (!seats.claim(reservations.trainNo(i), day, reservations.classType(i), legs, reservations.seat(i))) unseated.add(i);
+            }
+            for (int i : unseated) {
+                LocalDate day = LocalDate.ofEpochDay(reservations.travelEpochDay(i));
+                long legs = segments(reservations.trainNo(i), reservations.from(i), reservations.to(i));
+                String seat = seats.allocate(reservations.trainNo(i), day, reservations.classType(i), legs, SeatInventory.Berth.ANY);
+                if (seat == null) continue;   // over capacity: keep the booking, unseated
+                reservations.setSeat(i, seat);
+                assigned++;
+            }
+            if (assigned > 0) {
+                p.invalidateSnapshot();   // new seat assignments go out with the next checkpoint
+                p.publish();
+            }
+        } finally {
+            p.lock.writeLock().unlock();
+        }
+        return assigned;
+    }
+
+    static boolean isWaitlisted(String status) {
+        return "Waitlisted".equalsIgnoreCase(status);
+    }
+
+    // Bookings waiting for a berth on a train, date and class
+    int waitlistLength(String trainNo, LocalDate travelDate, String classType) {
+        return waitlist.size(trainNo, travelDate, classType);
+    }
+
+    // Place of a waitlisted booking in its queue (1 = next to be confirmed), or 0 if it is not waitlisted
+    int waitlistPosition(String pnr) {
+        return waitlist.position(pnr);
+    }
+
+    // Berths free over the whole run of a train, date and class
+    int seatsAvailable(String trainNo, LocalDate travelDate, String classType) {
+        return seats.available(trainNo, travelDate, classType, SeatInventory.WHOLE_RUN);
+    }
+
+    // Berths free for a journey between two stops
+    int seatsAvailable(String trainNo, LocalDate travelDate, String classType, String from, String to) {
+        return seats.available(trainNo, travelDate, classType, segments(trainNo, from, to));
+    }
+
+    // Rows, bytes and timing of the last startup load
+    CsvFileLoader.Stats getLoadStats() {
+        return loadStats;
+    }
+
+    // Notify listeners of the latest counters; never called with a lock held
+    private void fireChanged() {
+        if (changeListeners.isEmpty()) return;
+        ReservationStats now = getStats();
+        for (Consumer<ReservationStats> l : changeListeners) {
+            try {
+                l.accept(now);
+            } catch (RuntimeException e) {
+                System.err.println("Change listener failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Current totals per status and class: the archive's plus each month's
+     * published counters. O(months), no lock; while an archiving run swaps a
+     * month in, its rows may briefly be counted in both.
+     */
+    ReservationStats getStats() {
+        long total = archive.size();
+        Map<String,Integer> byStatus = new HashMap<>(archive.statusCounts());
+        Map<String,Integer> byClass = new HashMap<>(archive.classCounts());
+        for (ReservationPartition p : partitions.values()) {
+            ReservationStats s = p.stats();
+            total += s.getTotal();
+            s.getByStatus().forEach((k, v) -> byStatus.merge(k, v, Integer::sum));
+            s.getByClass().forEach((k, v) -> byClass.merge(k, v, Integer::sum));
+        }
+        return new ReservationStats((int) Math.min(Integer.MAX_VALUE, total), byStatus, byClass);
+    }
+
+    /**
+     * Called with fresh counters after every booking, batch, cancellation and load,
+     * on the thread that made the change. Listeners must be quick; UI code should
+     * hop to its own thread.
+     */
+    void addChangeListener(Consumer<ReservationStats> listener) {
+        changeListeners.add(Objects.requireNonNull(listener));
+    }
+
+    void removeChangeListener(Consumer<ReservationStats> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Consistent, immutable view of each month's reservations as of its last
+     * completed write, numbered as one table. Holds no lock and copies nothing,
+     * so reports and the UI can walk it for as long as they like while bookings
+     * continue.
+     */
+    PartitionedView currentView() {
+        List<ReservationPartition> parts = new ArrayList<>(partitions.values());
+        YearMonth[] months = new YearMonth[parts.size()];
+        ReservationStore.View[] views = new ReservationStore.View[parts.size()];
+        for (int i = 0; i < views.length; i++) {
+            months[i] = parts.get(i).month;
+            views[i] = parts.get(i).view();
+        }
+        return new PartitionedView(months, views);
+    }
+
+    // Approximate bytes held by the reservation columns of every month
+    long storeFootprintBytes() {
+        long bytes = 0;
+        for (ReservationPartition p : partitions.values()) bytes += p.footprintBytes();
+        return bytes;
+    }
+
+    // Receives journal and compaction failures (default: stderr); the GUI shows a dialog
+    void setPersistenceErrorHandler(Consumer<IOException> handler) {
+        this.persistenceErrors = Objects.requireNonNull(handler);
+    }
+
+    // Queue depth, group sizes and commit latency of the journal writers, all months together
+    JournalWriter.Metrics persistenceMetrics() {
+        JournalWriter.Metrics m = JournalWriter.Metrics.NONE;
+        for (ReservationPartition p : partitions.values()) m = m.plus(p.persistenceMetrics());
+        return m;
+    }
+
+    private void onPersistenceError(IOException e) {
+        persistenceErrors.accept(e);
+    }
+
+    // Latency histograms of book, cancel, lookups, saves, loads and lock waits (also on JMX)
+    ReservationMetrics latencyMetrics() {
+        return metrics;
+    }
+
+    // Block (outside the lock) until the requested durability is reached
+    private static void awaitDurable(CompletableFuture<Void> done) {
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+            throw e;
+        }
+    }
+
+    // Scheduled: each month folds whatever its journal holds, or writes a missing snapshot
+    private void checkpoint() {
+        for (ReservationPartition p : partitions.values()) p.checkpoint();
+    }
+
+    // Clean shutdown: stop the compactor, then drain, checkpoint and close every month; last metrics dump
+    void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ReservationPartition p : partitions.values()) p.close();
+        archive.close();
+        metrics.dump();
+        metrics.unregister();
+    }
+
+    /**
+     * Move every journey that travelled ARCHIVE_AFTER_DAYS or more days ago
+     * out of the live set into the archive (runs on the compactor every
+     * ARCHIVE_INTERVAL_MINUTES; safe to call directly). Only months up to the
+     * cutoff are visited, one at a time, each under its own lock (see
+     * {@link ReservationPartition#archiveBefore}); bookings for later months
+     * are never held up. Counters are unchanged: they cover live and archived
+     * rows alike.
+     *
+     * @return rows archived
+     */
+    int archiveCompleted() {
+        synchronized (archiving) {
+            LocalDate cutoff = LocalDate.now().minusDays(Math.max(0, ARCHIVE_AFTER_DAYS));
+            long t0 = System.nanoTime();
+            int n = 0;
+            for (ReservationPartition p : partitions.headMap(YearMonth.from(cutoff), true).values()) {
+                n += p.archiveBefore(archive, cutoff.toEpochDay());
+            }
+            if (n == 0) return 0;
+            seats.dropBefore(cutoff);
+            waitlist.dropBefore(cutoff);
+            long millis = (System.nanoTime() - t0) / 1_000_000;
+            int archived = n;
+            LOG.info(() -> String.format(Locale.US, "Archived %,d completed journeys (travel before %s) in %,d ms; %,d live",
+                    archived, cutoff, millis, currentView().size()));
+            fireChanged();
+            return n;
+        }
+    }
+
+    // Create a booking on the first free berth, or waitlist it; null when the class and its waitlist are full
+    Reservation book(String name, int age, String trainNo, String trainName, String classType,
+                     String from, String to, LocalDate travelDate) {
+        return book(name, age, trainNo, trainName, classType, from, to, travelDate, SeatInventory.Berth.ANY);
+    }
+
+    // Create a booking, preferring the given berth type, or waitlist it; null when the class and its waitlist are full
+    Reservation book(String name, int age, String trainNo, String trainName, String classType,
+                     String from, String to, LocalDate travelDate, SeatInventory.Berth berth) {
+        return book(name, age, trainNo, trainName, classType, from, to, travelDate, berth, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Create a booking. When no berth is free for the journey it is stored with
+     * status "Waitlisted" and no seat, at the end of the departure's waitlist
+     * (see {@link #cancel}); null when that waitlist already holds
+     * WAITLIST_LIMIT bookings.
+     * Only the travel month's lock is taken, so bookings for other months
+     * proceed in parallel. Returns once the journal row reaches the requested
+     * durability.
+     *
+     * @throws UncheckedIOException if the caller waited and the journal write failed
+     *         (the booking stays in memory and goes out with the next compaction)
+     * @throws IllegalStateException if the month's store has no room for a new
+     *         train, station or class value (nothing is stored, the berth is released)
+     */
+    Reservation book(String name, int age, String trainNo, String trainName, String classType,
+                     String from, String to, LocalDate travelDate, SeatInventory.Berth berth,
+                     JournalWriter.Durability durability) {
+        long t0 = System.nanoTime();
+        try {
+            // fare
+            double fare = estimateFare(trainNo, from, to, classType);
+            ReservationPartition p = partitionFor(YearMonth.from(travelDate));
+            // the berth is taken atomically before the lock; it is given back if the row cannot be stored
+            long legs = segments(trainNo, from, to);
+            String seat = seats.allocate(trainNo, travelDate, classType, legs, berth);
+            if (seat == null && WAITLIST_LIMIT <= 0) return null;
+            String pnr = pnrGenerator.next();
+            boolean stored = false;
+            Reservation r;
+            CompletableFuture<Void> written;
+            p.acquireWrite();
+            try {
+                // cancellations free berths under this lock, so a berth freed since the first try is found here
+                if (seat == null) seat = seats.allocate(trainNo, travelDate, classType, legs, berth);
+                if (seat == null && waitlist.size(trainNo, travelDate, classType) >= WAITLIST_LIMIT) return null;
+                r = new Reservation(pnr, new Passenger(name, age), trainNo, trainName, classType, from, to,
+                        LocalDateTime.now().withNano(0), travelDate, fare, seat == null ? "Waitlisted" : "Booked", "", seat);
+                p.add(r);
+                p.count(r.getStatus(), classType, 1);
+                if (seat == null) waitlist.add(trainNo, travelDate, classType, pnr, legs);
+                stored = true;
+                written = p.persist(r, durability);
+                p.publish();
+            } finally {
+                p.lock.writeLock().unlock();
+                if (!stored && seat != null) seats.release(trainNo, travelDate, classType, legs, seat);
+            }
+            fireChanged();
+            awaitDurable(written);
+            return r;
+        } finally {
+            metrics.recordSince(ReservationMetrics.Op.BOOK, t0);
+        }
+    }
+
+    /**
+     * Book a batch with one lock acquisition and one journal write per travel
+     * month in it. Requests are validated and berths taken up front
+     * (lock-free); then per month all PNRs are generated, rows stored and their
+     * journal rows flushed together. A batch needs confirmed berths: sold-out
+     * items fail rather than join a waitlist.
+     *
+     * @param allOrNothing when true, any failed item rejects the whole batch
+     *                     (its berths are released and nothing is stored);
+     *                     an item the store itself rejects while the batch is
+     *                     being stored (a full column dictionary) still fails
+     *                     alone
+     * @return one result per request, in request order
+     */
+    List<BookingResult> bookAll(List<BookingRequest> batch, boolean allOrNothing) {
+        return bookAll(batch, allOrNothing, DEFAULT_DURABILITY);
+    }
+
+    // As above; returns once the batch's journal rows reach the requested durability
+    List<BookingResult> bookAll(List<BookingRequest> batch, boolean allOrNothing, JournalWriter.Durability durability) {
+        int n = batch.size();
+        BookingResult[] results = new BookingResult[n];
+        String[] seatOf = new String[n];
+        long[] legsOf = new long[n];
+        double[] fareOf = new double[n];
+        int failed = 0;
+        for (int i = 0; i < n; i++) {
+            BookingRequest q = batch.get(i);
+            String error = validate(q);
+            if (error == null) {
+                fareOf[i] = estimateFare(q.trainNo, q.from, q.to, q.classType);
+                legsOf[i] = segments(q.trainNo, q.from, q.to);
+                seatOf[i] = seats.allocate(q.trainNo, q.travelDate, q.classType, legsOf[i], q.berth);
+                if (seatOf[i] == null) error = "No seats left in " + q.classType + " on " + q.trainNo + " for " + q.travelDate;
+            }
+            if (error != null) {
+                results[i] = BookingResult.failed(error);
+                failed++;
+            }
+        }
+        // every month's partition exists before anything is stored
+        Map<ReservationPartition, List<Integer>> byMonth = new LinkedHashMap<>();
+        RuntimeException unopened = null;
+        if (!allOrNothing || failed == 0) {
+            try {
+                for (int i = 0; i < n; i++) {
+                    if (results[i] == null) byMonth.computeIfAbsent(partitionFor(YearMonth.from(batch.get(i).travelDate)), p -> new ArrayList<>()).add(i);
+                }
+            } catch (UncheckedIOException e) {
+                unopened = e;
+            }
+        }
+        if ((allOrNothing && failed > 0) || unopened != null) {
+            for (int i = 0; i < n; i++) {
+                BookingRequest q = batch.get(i);
+                if (seatOf[i] != null) seats.release(q.trainNo, q.travelDate, q.classType, legsOf[i], seatOf[i]);
+                if (results[i] == null && unopened == null) results[i] = BookingResult.failed("Batch rejected: " + failed + " of " + n + " requests failed");
+            }
+            if (unopened != null) throw unopened;
+            return Arrays.asList(results);
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>(byMonth.size());
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (Map.Entry<ReservationPartition, List<Integer>> e : byMonth.entrySet()) {
+            ReservationPartition p = e.getKey();
+            List<String> pnrs = new ArrayList<>(e.getValue().size());
+            List<String> rows = new ArrayList<>(e.getValue().size());
+            p.acquireWrite();
+            try {
+                for (int i : e.getValue()) {
+                    BookingRequest q = batch.get(i);
+                    Reservation r = new Reservation(pnrGenerator.next(), new Passenger(q.name.trim(), q.age), q.trainNo, q.trainName,
+                            q.classType, q.from, q.to, now, q.travelDate, fareOf[i], "Booked", "", seatOf[i]);
+                    try {
+                        p.add(r);
+                    } catch (IllegalArgumentException | IllegalStateException rejected) {
+                        // the store took nothing (ReservationPartition.add); this item alone fails
+                        seats.release(q.trainNo, q.travelDate, q.classType, legsOf[i], seatOf[i]);
+                        results[i] = BookingResult.failed(rejected.getMessage());
+                        continue;
+                    }
+                    p.count(r.getStatus(), r.getClassType(), 1);
+                    pnrs.add(r.getPnr());
+                    rows.add(p.encode(r));
+                    results[i] = BookingResult.booked(r);
+                }
+                writes.add(p.persistAll(pnrs, rows, durability));
+                p.publish();
+            } finally {
+                p.lock.writeLock().unlock();
+            }
+        }
+        if (!byMonth.isEmpty()) fireChanged();
+        awaitDurable(CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])));
+        return Arrays.asList(results);
+    }
+
+    // Why a booking request cannot be booked, or null
+    String validate(BookingRequest q) {
+        if (q == null) return "Missing request";
+        if (q.name == null || q.name.trim().length() < 2) return "Invalid passenger name";
+        if (q.name.getBytes(StandardCharsets.UTF_8).length > ReservationStore.MAX_NAME_BYTES) return "Passenger name too long";
+        if (q.age <= 0 || q.age > 120) return "Invalid age: " + q.age;
+        if (q.trainNo == null || q.trainNo.trim().isEmpty()) return "Missing train number";
+        if (q.travelDate == null) return "Missing travel date";
+        if (q.from == null || q.from.trim().isEmpty() || q.to == null || q.to.trim().isEmpty()) return "Missing from/to";
+        TrainRoute route = getRoute(q.trainNo);
+        if (route != null && !route.serves(q.from, q.to)) return q.trainNo + " does not run " + q.from + " -> " + q.to;
+        return null;
+    }
+
+    // Cancel (returns true if success)
+    boolean cancel(String pnr, String reason) {
+        return cancel(pnr, reason, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Cancel under the travel month's lock. A waitlisted booking just leaves its
+     * queue; a confirmed one frees its berth, which is offered to the
+     * departure's waitlist at once (see {@link #promote}). The cancellation and
+     * any promotions go to the journal as one group, in one write; returns once
+     * it reaches the requested durability.
+     */
+    boolean cancel(String pnr, String reason, JournalWriter.Durability durability) {
+        long t0 = System.nanoTime();
+        try {
+            if (pnr == null) return false;
+            ReservationPartition p = partitionOf(pnr);
+            if (p == null) return false;
+            CompletableFuture<Void> written;
+            p.acquireWrite();
+            try {
+                ReservationStore reservations = p.store;
+                int i = reservations.indexOf(pnr);
+                if (i < 0 || reservations.isCancelled(i)) return false;
+                boolean waiting = isWaitlisted(reservations.status(i));
+                p.count(reservations.status(i), null, -1);
+                p.count("Cancelled", null, 1);
+                reservations.setStatus(i, "Cancelled", reason);
+                Reservation r = reservations.get(i);
+                List<String> pnrs = new ArrayList<>(2);
+                List<String> rows = new ArrayList<>(2);
+                pnrs.add(r.getPnr());   // as stored: the caller's may differ in case
+                rows.add(p.encode(r));
+                if (waiting) {
+                    waitlist.remove(r.getPnr());
+                } else if (seats.release(r.getTrainNo(), r.getTravelDate(), r.getClassType(), segments(r.getTrainNo(), r.getFrom(), r.getTo()), r.getSeat())) {
+                    promote(p, r, pnrs, rows);
+                }
+                written = p.persistAll(pnrs, rows, durability);
+                p.publish();
+            } finally {
+                p.lock.writeLock().unlock();
+            }
+            fireChanged();
+            awaitDurable(written);
+            return true;
+        } finally {
+            metrics.recordSince(ReservationMetrics.Op.CANCEL, t0);
+        }
+    }
+
+    /**
+     * Offer the berth of a cancelled booking to its departure's waitlist,
+     * earliest booking first (caller holds the month's write lock). Until every
+     * freed leg of the berth is taken again, the earliest waitlisted ticket
+     * that fits gets it, so a later ticket that fits is never left behind for
+     * new bookings to take; one berth can confirm several waitlisted journeys
+     * that do not overlap. Only the first ticket of each leg set that shares a
+     * freed leg is looked at (see {@link Waitlist#firstPerLegs}), so the time
+     * under the lock does not grow with the queue. Tickets whose booking is no
+     * longer waitlisted are dropped. Promoted rows are added to the caller's
+     * journal group.
+     */
+    private void promote(ReservationPartition p, Reservation freed, List<String> pnrs, List<String> rows) {
+        String trainNo = freed.getTrainNo(), classType = freed.getClassType(), seat = freed.getSeat();
+        LocalDate day = freed.getTravelDate();
+        long open = segments(trainNo, freed.getFrom(), freed.getTo());
+        // leg sets that did not fit the berth; claims only take legs, so they will not fit later either
+        Set<Long> misfits = new HashSet<>();
+        Waitlist.Ticket taken;
+        do {
+            taken = null;
+            for (Waitlist.Ticket t : waitlist.firstPerLegs(trainNo, day, classType, open)) {
+                int i = p.store.indexOf(t.pnr);
+                if (i < 0 || !isWaitlisted(p.store.status(i))) {   // stale: moved, cancelled or already booked
+                    waitlist.remove(t.pnr);
+                    taken = t;
+                    break;
+                }
+                if (misfits.contains(t.legs)) continue;
+                if (!seats.claim(trainNo, day, classType, t.legs, seat)) {
+                    misfits.add(t.legs);
+                    continue;
+                }
+                waitlist.remove(t.pnr);
+                open &= ~t.legs;
+                p.count(p.store.status(i), null, -1);
+                p.count("Booked", null, 1);
+                p.store.setStatus(i, "Booked", "");
+                p.store.setSeat(i, seat);
+                pnrs.add(p.store.pnr(i));
+                rows.add(p.encode(p.store.get(i)));
+                taken = t;
+                break;
+            }
+        } while (taken != null && open != 0);
+    }
+
+    // Search by PNR: each month's live view (lock-free), then the archive's on-disk index
+    Reservation findByPNR(String pnr) {
+        long t0 = System.nanoTime();
+        try {
+            if (pnr == null) return null;
+            for (ReservationPartition p : partitions.descendingMap().values()) {
+                ReservationStore.View v = p.view();
+                int i = v.indexOf(pnr);
+                if (i >= 0) return v.get(i);
+            }
+            try {
+                return archive.find(pnr);
+            } catch (IOException e) {
+                System.err.println("Archive lookup failed for " + pnr + ": " + e.getMessage());
+                return null;
+            }
+        } finally {
+            metrics.recordSince(ReservationMetrics.Op.FIND_BY_PNR, t0);
+        }
+    }
+
+    // Search by name (partial), best NAME_SEARCH_LIMIT matches
+    List<Reservation> findByName(String namePart) {
+        return findByName(namePart, NAME_SEARCH_LIMIT);
+    }
+
+    /**
+     * Ranked: exact name, then prefix, then word start, then any substring; active
+     * before cancelled; newest booking first. Every month is searched in parallel
+     * for its own best `limit` matches, and those are merged.
+     */
+    List<Reservation> findByName(String namePart, int limit) {
+        long t0 = System.nanoTime();
+        try {
+            String q = TrigramIndex.normalize(namePart);
+            if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+            List<ReservationPartition> parts = new ArrayList<>(partitions.values());
+            List<Reservation> hits = (parts.size() > 1 ? parts.parallelStream() : parts.stream())
+                    .flatMap(p -> p.findByName(q, limit).stream())
+                    .collect(Collectors.toList());
+            hits.sort(Comparator.comparingInt((Reservation r) -> nameScore(q, r.getPassenger().getName(), "Cancelled".equalsIgnoreCase(r.getStatus())))
+                    .thenComparing(Reservation::getBookingTime, Comparator.reverseOrder()));
+            return new ArrayList<>(hits.subList(0, Math.min(limit, hits.size())));
+        } finally {
+            metrics.recordSince(ReservationMetrics.Op.FIND_BY_NAME, t0);
+        }
+    }
+
+    // Rank of a name match (lower is better): match kind times two, plus one when cancelled
+    static int nameScore(String normalizedQuery, String name, boolean cancelled) {
+        String n = TrigramIndex.normalize(name);
+        int match = n.equals(normalizedQuery) ? 0 : n.startsWith(normalizedQuery) ? 1 : n.contains(" " + normalizedQuery) ? 2 : 3;
+        return match * 2 + (cancelled ? 1 : 0);
+    }
+
+    // Passenger manifest of one departure (active bookings only), in booking order
+    List<Reservation> manifest(String trainNo, LocalDate date, String classType) {
+        return manifest(trainNo, date, date, classType, false);
+    }
+
+    /**
+     * Bookings on one train with travel date in [from, to], optionally of one
+     * class (null = all), ordered by date, then class, then booking order.
+     * Costs a range lookup in the departure index of each month in the range
+     * plus the size of the result, however many other trains and dates the
+     * store holds.
+     */
+    List<Reservation> manifest(String trainNo, LocalDate from, LocalDate to, String classType, boolean includeCancelled) {
+        List<Reservation> out = new ArrayList<>();
+        if (to.isBefore(from)) return out;
+        for (ReservationPartition p : partitions.subMap(YearMonth.from(from), true, YearMonth.from(to), true).values()) {
+            int[] ids;
+            ReservationStore.View v;
+            p.acquireRead();
+            try {
+                v = p.view();
+                ids = p.departures.rows(trainNo, from.toEpochDay(), to.toEpochDay(), classType);
+            } finally {
+                p.lock.readLock().unlock();
+            }
+            for (int id : ids) {
+                if (includeCancelled || !v.isCancelled(id)) out.add(v.get(id));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * One page of at most limit matches after the cursor (null = first page).
+     * Months outside the query's travel dates are skipped.
+     *
+     * Within each month the planner prices each access path by the rows it
+     * would have to check - the departure index when a train is given, the name
+     * index for names of three or more characters, else a scan from the cursor
+     * on - and takes the cheapest. Index lookups run under that month's read
+     * lock; filtering and materializing run on its view outside it, and only
+     * the page itself is materialized. The page names the path taken in every
+     * month it read, and as its access the one that checked the most rows.
+     *
+     * @throws IllegalArgumentException for a cursor of another query
+     */
+    ReservationQuery.Page query(ReservationQuery q, String cursor, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be positive");
+        while (true) {
+            int generation = archive.generation();
+            ReservationQuery.Position after = q.positionAfter(cursor, generation);
+            NavigableMap<YearMonth, ReservationPartition> span = partitions;
+            YearMonth first = q.fromDate == null ? null : YearMonth.from(q.fromDate);
+            if (after != null && (first == null || after.month.isAfter(first))) first = after.month;
+            if (first != null) span = span.tailMap(first, true);
+            if (q.toDate != null) span = span.headMap(YearMonth.from(q.toDate), true);
+
+            List<Reservation> rows = new ArrayList<>(Math.min(limit, 1024));
+            int checked = 0, last = -1;
+            YearMonth lastMonth = null;
+            boolean more = false;
+            Map<YearMonth, ReservationQuery.Access> paths = new LinkedHashMap<>();
+            int[] checkedBy = new int[ReservationQuery.Access.values().length];
+            for (ReservationPartition p : span.values()) {
+                int from = after != null && after.month.equals(p.month) ? after.row : -1;
+                ReservationStore.View v;
+                int[] ids = null;
+                int before = checked;
+                ReservationQuery.Access access = ReservationQuery.Access.SCAN;
+                p.acquireRead();
+                try {
+                    v = p.view();
+                    long cost = Math.max(0, v.size() - from - 1);
+                    if (q.trainNo != null) {
+                        int n = p.departures.count(q.trainNo, q.firstDay(), q.lastDay(), q.classType);
+                        if (n < cost) {
+                            cost = n;
+                            access = ReservationQuery.Access.DEPARTURE_INDEX;
+                        }
+                    }
+                    if (q.name != null) {
+                        int n = p.names.estimate(q.name);
+                        if (n >= 0 && n < cost) access = ReservationQuery.Access.NAME_INDEX;
+                    }
+                    if (access == ReservationQuery.Access.DEPARTURE_INDEX) {
+                        ids = p.departures.rows(q.trainNo, q.firstDay(), q.lastDay(), q.classType);
+                        Arrays.sort(ids);   // grouped by departure; pages run in row order
+                    } else if (access == ReservationQuery.Access.NAME_INDEX) {
+                        ids = p.names.search(q.name, v::name);
+                    }
+                } finally {
+                    p.lock.readLock().unlock();
+                }
+
+                if (ids == null) {
+                    for (int row = from + 1; row < v.size(); row++) {
+                        checked++;
+                        if (!q.matches(v, row)) continue;
+                        if (rows.size() == limit) { more = true; break; }
+                        rows.add(v.get(row));
+                        lastMonth = p.month;
+                        last = row;
+                    }
+                } else {
+                    int i = Arrays.binarySearch(ids, from + 1);
+                    for (i = i < 0 ? -i - 1 : i; i < ids.length; i++) {
+                        checked++;
+                        if (!q.matches(v, ids[i])) continue;
+                        if (rows.size() == limit) { more = true; break; }
+                        rows.add(v.get(ids[i]));
+                        lastMonth = p.month;
+                        last = ids[i];
+                    }
+                }
+                paths.put(p.month, access);
+                checkedBy[access.ordinal()] += checked - before;
+                if (more) break;
+            }
+            // an archiving run renumbered a month meanwhile: read again (the cursor may have expired)
+            if (archive.generation() != generation) continue;
+            ReservationQuery.Access dominant = ReservationQuery.Access.SCAN;
+            for (ReservationQuery.Access a : ReservationQuery.Access.values()) {
+                if (checkedBy[a.ordinal()] > checkedBy[dominant.ordinal()]) dominant = a;
+            }
+            // nothing to check anywhere (an index ruled every month out): name the first month's path
+            if (checked == 0 && !paths.isEmpty()) dominant = paths.values().iterator().next();
+            return new ReservationQuery.Page(rows, more ? q.cursorAfter(lastMonth, last, generation) : null,
+                    dominant, paths, checked);
+        }
+    }
+
+    // Materialized copy of every row, month by month; prefer currentView() for counts and scans
+    List<Reservation> allReservations() {
+        PartitionedView v = currentView();
+        List<Reservation> out = new ArrayList<>(v.size());
+        for (int i = 0; i < v.size(); i++) out.add(v.get(i));
+        return out;
+    }
+
+    // Fare quote; repeated (train, from, to, class) quotes come from the cache
+    double estimateFare(String trainNo, String from, String to, String classType) {
+        return fareQuotes.get(trainNo, from, to, classType, () -> computeFare(trainNo, from, to, classType));
+    }
+
+    // Hits, misses and size of the fare-quote cache
+    FareQuoteCache.Stats fareCacheStats() {
+        return fareQuotes.stats();
+    }
+
+    // Fare from route distance (catalogued journeys) or a deterministic heuristic
+    private double computeFare(String trainNo, String from, String to, String classType) {
+        TrainRoute route = getRoute(trainNo);
+        int km = route == null ? -1 : route.distanceKm(from, to);
+        return fareFor(km > 0 ? km : estimateDistance(trainNo, from, to), classType);
+    }
+
+    // Fare for a distance and class: 0.5/km + 100, times the class multiplier, rounded to 5, at least 40
+    static double fareFor(double dist, String classType) {
+        double base = 0.5 * dist + 100;
+        double cls = classMultiplier(classType);
+        double fare = base * cls;
+        // round to nearest 5
+        fare = Math.max(40, Math.round(fare / 5.0) * 5.0);
+        return fare;
+    }
+
+    // Pseudo-distance for journeys outside the catalogue
+    private double estimateDistance(String trainNo, String from, String to) {
+        if (from != null && !from.isEmpty() && to != null && !to.isEmpty()) {
+            int len = Math.abs(from.trim().length() - to.trim().length());
+            int sum = (from.trim().length() + to.trim().length());
+            double base = 60 + len * 10 + (sum % 200);
+            base += Math.abs(trainNo.hashCode()) % 200;
+            return Math.min(2000, Math.max(30, base));
+        } else {
+            return 100 + Math.abs(trainNo.hashCode()) % 800;
+        }
+    }
+
+    private static double classMultiplier(String classType) {
+        if (classType == null) return 1.0;
+        switch (classType) {
+            case "AC 1st": return 3.0;
+            case "AC 2-tier": return 2.2;
+            case "AC 3-tier": return 1.6;
+            case "Sleeper": return 1.0;
+            case "General": return 0.6;
+            default: return 1.0;
+        }
+    }
+
+    // Export a ticket text file; returns path or null
+    Path exportTicketText(Reservation r) {
+        try {
+            Path p = Paths.get(r.getPnr() + "_ticket.txt");
+            Files.write(p, TicketExporter.render(r).getBytes(StandardCharsets.UTF_8));
+            return p;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Tickets for the given PNRs, in that order, in one file: a ZIP of
+     * PNR_ticket.txt entries when the name ends in .zip, else one text file
+     * with a page break between tickets. Unknown and repeated PNRs are skipped.
+     *
+     * @return number of tickets written
+     */
+    int exportTickets(Collection<String> pnrs, Path out) throws IOException {
+        List<Reservation> tickets = new ArrayList<>(pnrs.size());
+        for (String pnr : new LinkedHashSet<>(pnrs)) {
+            Reservation r = findByPNR(pnr);
+            if (r != null) tickets.add(r);
+        }
+        TicketExporter.export(tickets, out);
+        return tickets.size();
+    }
+
+    // Tickets of every active booking on one departure, by class then booking order
+    int exportTickets(String trainNo, LocalDate date, Path out) throws IOException {
+        List<Reservation> tickets = manifest(trainNo, date, date, null, false);
+        TicketExporter.export(tickets, out);
+        return tickets.size();
+    }
+}
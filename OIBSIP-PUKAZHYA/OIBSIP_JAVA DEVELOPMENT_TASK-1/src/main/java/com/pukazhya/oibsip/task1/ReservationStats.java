@@ -0,0 +1,33 @@
+package com.pukazhya.oibsip.task1;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ReservationStats.java
+ * Point-in-time dashboard counters: all rows, and rows per status and per class
+ */
+final class ReservationStats {
+    static final ReservationStats EMPTY = new ReservationStats(0, new HashMap<>(), new HashMap<>());
+
+    private final int total;
+    private final Map<String,Integer> byStatus;
+    private final Map<String,Integer> byClass;
+
+    ReservationStats(int total, Map<String,Integer> byStatus, Map<String,Integer> byClass) {
+        this.total = total;
+        this.byStatus = Collections.unmodifiableMap(new LinkedHashMap<>(byStatus));
+        this.byClass = Collections.unmodifiableMap(new LinkedHashMap<>(byClass));
+    }
+
+    int getTotal() { return total; }
+    // Rows with the status (case-insensitive, like Reservation status checks)
+    int getStatusCount(String status) { return byStatus.getOrDefault(status.toLowerCase(Locale.ROOT), 0); }
+    int getClassCount(String classType) { return byClass.getOrDefault(classType, 0); }
+    // status (lower case) -> rows
+    Map<String,Integer> getByStatus() { return byStatus; }
+    Map<String,Integer> getByClass() { return byClass; }
+}
@@ -0,0 +1,272 @@
+package com.pukazhya.oibsip.task1;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * ReservationTableModel.java
+ * Virtual table model over a {@link PartitionedView} of all month partitions
+ *
+ * The model keeps no copy of the data: cells are read from the view and
+ * formatted only when the table asks for them, i.e. for the rows on screen.
+ * {@link #update} moves to a newer view and fires one event per inserted or
+ * changed row instead of rebuilding the table.
+ *
+ * Sorting and the status filter work on an index of view rows (table row ->
+ * view row) ordered by per-row keys computed once per sort. Later inserts and
+ * changes are placed into that index by binary search, so only a new sort
+ * column or filter costs a full pass. Ties are broken by view row (travel
+ * month, then booking order), which keeps the order total and stable.
+ *
+ * Event-dispatch thread only, like every Swing model.
+ */
+final class ReservationTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    static final String[] COLUMNS = {"PNR", "Name", "Train(no)", "Class", "Date", "Fare", "Status"};
+    private static final int DATE = 4, FARE = 5, STATUS = 6;
+
+    private PartitionedView view;
+
+    // filter: only rows with this status (case-insensitive); null = all
+    private String statusFilter;
+    // sort column, or -1 for view order (month, then booking order)
+    private int sortColumn = -1;
+    private boolean descending;
+
+    // table row -> view row; null while neither sorting nor filtering (identity)
+    private int[] order;
+    private int orderSize;
+    // sort keys by view row: numeric columns use numKey, text columns textKey
+    private long[] numKey;
+    private String[] textKey;
+
+    ReservationTableModel(PartitionedView view) {
+        this.view = view;
+    }
+
+    @Override public int getRowCount() { return order == null ? view.size() : orderSize; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+    @Override public Class<?> getColumnClass(int column) { return String.class; }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return format(view, viewRow(rowIndex), columnIndex);
+    }
+
+    // View row shown at the table row
+    int viewRow(int rowIndex) {
+        return order == null ? rowIndex : order[rowIndex];
+    }
+
+    String pnrAt(int rowIndex) {
+        return view.pnr(viewRow(rowIndex));
+    }
+
+    int getSortColumn() { return sortColumn; }
+    boolean isDescending() { return descending; }
+
+    /**
+     * Switch to a newer view of the same partitions, firing row events for
+     * appended and changed rows. Rows booked into an earlier month move the
+     * later ones down; the index and keys follow them. A view from another store
+     * generation (reload, archiving) resets the table.
+     */
+    void update(PartitionedView next) {
+        PartitionedView prev = view;
+        if (next == prev) return;
+        if (!next.continues(prev)) {   // reloaded or archived: row numbers changed
+            view = next;
+            rebuild();
+            return;
+        }
+        view = next;
+        if (order == null) {
+            // inserts first, ascending: each range is then at its final position
+            next.forEachAppended(prev, this::fireTableRowsInserted);
+            for (int row : changedRows(next, prev)) fireTableRowsUpdated(row, row);
+            return;
+        }
+        if (next.movedSince(prev)) renumber(prev, next);
+        for (int row : changedRows(next, prev)) {
+            int at = included(prev, next.rowIn(prev, row)) ? position(row) : -1;
+            if (at >= 0 && sortColumn != STATUS && included(next, row)) {
+                fireTableRowsUpdated(at, at);   // same key, same place
+                continue;
+            }
+            // remove at the old position (old key, old filter result), insert with the new ones
+            if (at >= 0) {
+                System.arraycopy(order, at + 1, order, at, orderSize - at - 1);
+                orderSize--;
+                fireTableRowsDeleted(at, at);
+            }
+            setKey(next, row);
+            if (included(next, row)) insert(row);
+        }
+        ensureKeys(next.size());
+        next.forEachAppended(prev, (first, last) -> {
+            for (int row = first; row <= last; row++) {
+                setKey(next, row);
+                if (included(next, row)) insert(row);
+            }
+        });
+    }
+
+    // Move the index entries and sort keys of the previous view's rows to their numbers in the next one
+    private void renumber(PartitionedView prev, PartitionedView next) {
+        int[] moved = new int[prev.size()];
+        long[] nums = numKey == null ? null : new long[Math.max(16, next.size())];
+        String[] texts = textKey == null ? null : new String[Math.max(16, next.size())];
+        next.forEachMoved(prev, (olderStart, start, length) -> {
+            for (int i = 0; i < length; i++) moved[olderStart + i] = start + i;
+            if (nums != null) System.arraycopy(numKey, olderStart, nums, start, length);
+            if (texts != null) System.arraycopy(textKey, olderStart, texts, start, length);
+        });
+        for (int i = 0; i < orderSize; i++) order[i] = moved[order[i]];
+        if (nums != null) numKey = nums;
+        if (texts != null) textKey = texts;
+    }
+
+    // Show only rows with the status (null = all)
+    void setStatusFilter(String status) {
+        statusFilter = status;
+        rebuild();
+    }
+
+    // Sort by the column; the same column again flips the direction, -1 restores view order
+    void sortBy(int column) {
+        if (column == sortColumn && column >= 0) {
+            descending = !descending;
+        } else {
+            sortColumn = column;
+            descending = false;
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        int n = view.size();
+        if (statusFilter == null && sortColumn < 0) {
+            order = null;
+            numKey = null;
+            textKey = null;
+            fireTableDataChanged();
+            return;
+        }
+        numKey = null;
+        textKey = null;
+        ensureKeys(n);
+        int[] rows = new int[Math.max(16, n)];
+        int m = 0;
+        for (int row = 0; row < n; row++) {
+            if (!included(view, row)) continue;
+            setKey(view, row);
+            rows[m++] = row;
+        }
+        if (sortColumn >= 0) mergeSort(rows, new int[m], 0, m);
+        order = rows;
+        orderSize = m;
+        fireTableDataChanged();
+    }
+
+    private boolean included(PartitionedView v, int row) {
+        return statusFilter == null || statusFilter.equalsIgnoreCase(v.status(row));
+    }
+
+    // Binary-insert a view row into the index and fire its event
+    private void insert(int row) {
+        int lo = 0, hi = orderSize;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(order[mid], row) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        if (orderSize == order.length) order = Arrays.copyOf(order, orderSize + (orderSize >> 1) + 16);
+        System.arraycopy(order, lo, order, lo + 1, orderSize - lo);
+        order[lo] = row;
+        orderSize++;
+        fireTableRowsInserted(lo, lo);
+    }
+
+    // Table row of a view row that is in the index (its key must be unchanged), or -1
+    private int position(int row) {
+        int lo = 0, hi = orderSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(order[mid], row);
+            if (c == 0) return mid;
+            if (c < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    private int compare(int a, int b) {
+        int c = 0;
+        if (sortColumn >= 0) {
+            c = numeric(sortColumn) ? Long.compare(numKey[a], numKey[b]) : textKey[a].compareToIgnoreCase(textKey[b]);
+            if (descending) c = -c;
+        }
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    private void ensureKeys(int n) {
+        if (sortColumn < 0) return;
+        if (numeric(sortColumn)) {
+            if (numKey == null || numKey.length < n) numKey = numKey == null ? new long[Math.max(16, n)] : Arrays.copyOf(numKey, Math.max(n, numKey.length * 2));
+        } else {
+            if (textKey == null || textKey.length < n) textKey = textKey == null ? new String[Math.max(16, n)] : Arrays.copyOf(textKey, Math.max(n, textKey.length * 2));
+        }
+    }
+
+    private void setKey(PartitionedView v, int row) {
+        if (sortColumn < 0) return;
+        ensureKeys(row + 1);
+        if (sortColumn == DATE) numKey[row] = v.travelEpochDay(row);
+        else if (sortColumn == FARE) numKey[row] = Math.round(v.fare(row) * 100);
+        else textKey[row] = format(v, row, sortColumn);
+    }
+
+    private static boolean numeric(int column) {
+        return column == DATE || column == FARE;
+    }
+
+    // Stable top-down merge sort of rows[lo, hi) by compare
+    private void mergeSort(int[] rows, int[] tmp, int lo, int hi) {
+        if (hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        mergeSort(rows, tmp, lo, mid);
+        mergeSort(rows, tmp, mid, hi);
+        if (compare(rows[mid - 1], rows[mid]) <= 0) return;
+        System.arraycopy(rows, lo, tmp, lo, hi - lo);
+        for (int i = lo, a = lo, b = mid; i < hi; i++) {
+            rows[i] = b >= hi || (a < mid && compare(tmp[a], tmp[b]) <= 0) ? tmp[a++] : tmp[b++];
+        }
+    }
+
+    private static int[] changedRows(PartitionedView next, PartitionedView prev) {
+        int[][] out = {new int[8]};
+        int[] n = {0};
+        next.forEachChanged(prev, row -> {
+            if (n[0] == out[0].length) out[0] = Arrays.copyOf(out[0], n[0] * 2);
+            out[0][n[0]++] = row;
+        });
+        return Arrays.copyOf(out[0], n[0]);
+    }
+
+    // Display text of one cell
+    private static String format(PartitionedView v, int row, int column) {
+        switch (column) {
+            case 0: return v.pnr(row);
+            case 1: return v.name(row);
+            case 2: return v.trainName(row) + " (" + v.trainNo(row) + ")";
+            case 3: return v.classType(row);
+            case DATE: return LocalDate.ofEpochDay(v.travelEpochDay(row)).toString();
+            case FARE: return "Rs." + (int) Math.round(v.fare(row));
+            case STATUS: return v.status(row);
+            default: throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+}
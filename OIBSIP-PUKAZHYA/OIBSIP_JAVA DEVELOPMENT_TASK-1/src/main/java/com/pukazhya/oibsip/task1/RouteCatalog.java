@@ -0,0 +1,106 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * RouteCatalog.java
+ * Trains, their stops and stop distances, read from a small CSV file
+ *
+ * One line per stop in running order: TrainNo,TrainName,Station,Km where Km is
+ * the distance from the train's first stop. Blank lines and lines starting
+ * with '#' are ignored. A "routes.csv" beside the reservations file replaces
+ * the catalogue bundled with the application.
+ *
+ * Immutable once loaded, so it is shared freely between threads.
+ */
+final class RouteCatalog {
+    static final String FILE_NAME = "routes.csv";
+
+    private final Map<String,TrainRoute> routes;
+    private final List<String> stations;
+
+    private RouteCatalog(Map<String,TrainRoute> routes) {
+        this.routes = Collections.unmodifiableMap(routes);
+        TreeSet<String> names = new TreeSet<>();
+        for (TrainRoute r : routes.values()) names.addAll(r.getStops());
+        this.stations = Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    // Catalogue beside the data file if present, else the bundled one
+    static RouteCatalog load(Path dataFile) throws IOException {
+        Path local = dataFile.resolveSibling(FILE_NAME);
+        if (Files.exists(local)) {
+            try (InputStream in = Files.newInputStream(local)) {
+                return read(in, local.toString());
+            }
+        }
+        try (InputStream in = RouteCatalog.class.getResourceAsStream(FILE_NAME)) {
+            if (in == null) throw new IOException("Bundled route catalogue " + FILE_NAME + " is missing");
+            return read(in, FILE_NAME);
+        }
+    }
+
+    static RouteCatalog read(InputStream in, String source) throws IOException {
+        Map<String,String> names = new LinkedHashMap<>();
+        Map<String,List<String>> stops = new LinkedHashMap<>();
+        Map<String,int[]> km = new LinkedHashMap<>();
+        BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNo = 0;
+        while ((line = r.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] f = line.split(",", -1);
+            if (f.length != 4) throw new IOException(source + ":" + lineNo + ": expected TrainNo,TrainName,Station,Km");
+            String trainNo = f[0].trim();
+            int dist;
+            try {
+                dist = Integer.parseInt(f[3].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException(source + ":" + lineNo + ": bad distance '" + f[3].trim() + "'");
+            }
+            names.putIfAbsent(trainNo, f[1].trim());
+            List<String> s = stops.computeIfAbsent(trainNo, k -> new ArrayList<>());
+            int[] d = km.getOrDefault(trainNo, new int[0]);
+            d = Arrays.copyOf(d, d.length + 1);
+            d[d.length - 1] = dist;
+            km.put(trainNo, d);
+            s.add(f[2].trim().toUpperCase(Locale.ROOT));
+        }
+        Map<String,TrainRoute> routes = new LinkedHashMap<>();
+        for (Map.Entry<String,String> e : names.entrySet()) {
+            try {
+                routes.put(e.getKey(), new TrainRoute(e.getKey(), e.getValue(), stops.get(e.getKey()), km.get(e.getKey())));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(source + ": " + ex.getMessage());
+            }
+        }
+        return new RouteCatalog(routes);
+    }
+
+    // Train number -> route, in file order
+    Map<String,TrainRoute> routes() { return routes; }
+
+    // Every station served by some train, sorted
+    List<String> stations() { return stations; }
+
+    // Route of a catalogued train, or null
+    TrainRoute route(String trainNo) {
+        return trainNo == null ? null : routes.get(trainNo.trim());
+    }
+}
@@ -0,0 +1,227 @@
+package com.pukazhya.oibsip.task1;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * SeatInventory.java
+ * Berth-level, segment-aware seat inventory per (train, travel date, class)
+ *
+ * A train's route is cut into segments between consecutive stations, and a
+ * journey covers a contiguous run of them, given as a bitmask (bit i = leg from
+ * station i to i+1; see {@link TrainRoute#segments}). Each berth of the class
+ * layout holds one 64-bit occupancy mask in an AtomicLongArray, so a berth
+ * released at an intermediate station can be sold again for the rest of the run.
+ *
+ * A berth is taken by a compare-and-set that ORs the journey mask in, only if
+ * none of its bits were set, and released by clearing them the same way: two
+ * overlapping journeys can never hold the same berth, and bookings for other
+ * trains or dates never contend. No lock is involved. Finding a berth or
+ * counting availability is one AND per berth (a few hundred per class).
+ *
+ * Seats are labelled like "B3-42" (coach prefix + coach number, berth number).
+ */
+final class SeatInventory {
+
+    // Berth preference; ANY takes the first free berth
+    enum Berth { ANY, LOWER, MIDDLE, UPPER, SIDE_LOWER, SIDE_UPPER }
+
+    // Journey over every segment (unknown route or stations)
+    static final long WHOLE_RUN = -1L;
+
+    private static final Berth L = Berth.LOWER, M = Berth.MIDDLE, U = Berth.UPPER,
+            SL = Berth.SIDE_LOWER, SU = Berth.SIDE_UPPER;
+
+    // Coach layout of one class: berths repeat in bays of the given pattern
+    static final class Layout {
+        final String prefix;
+        final int coaches;
+        final int berthsPerCoach;
+        private final Berth[] bay;
+        private final int[][] eligible;   // per Berth: seat numbers of that type, in order
+
+        private Layout(String prefix, int coaches, int berthsPerCoach, Berth... bay) {
+            this.prefix = prefix;
+            this.coaches = coaches;
+            this.berthsPerCoach = berthsPerCoach;
+            this.bay = bay;
+            eligible = new int[Berth.values().length][];
+            for (Berth b : Berth.values()) {
+                eligible[b.ordinal()] = IntStream.range(0, capacity())
+                        .filter(seat -> b == Berth.ANY || berthOf(seat) == b).toArray();
+            }
+        }
+
+        int capacity() { return coaches * berthsPerCoach; }
+
+        Berth berthOf(int seat) {
+            return bay.length == 0 ? Berth.ANY : bay[(seat % berthsPerCoach) % bay.length];
+        }
+
+        String label(int seat) {
+            return prefix + (seat / berthsPerCoach + 1) + "-" + (seat % berthsPerCoach + 1);
+        }
+
+        // Seat index of a label of this layout, or -1
+        int indexOf(String label) {
+            if (label == null || !label.startsWith(prefix)) return -1;
+            int dash = label.indexOf('-', prefix.length());
+            if (dash < 0) return -1;
+            int coach = digits(label, prefix.length(), dash);
+            int berth = digits(label, dash + 1, label.length());
+            if (coach < 1 || coach > coaches || berth < 1 || berth > berthsPerCoach) return -1;
+            return (coach - 1) * berthsPerCoach + berth - 1;
+        }
+
+        private static int digits(String s, int from, int to) {
+            if (from >= to || to - from > 4) return -1;
+            int v = 0;
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return -1;
+                v = v * 10 + (c - '0');
+            }
+            return v;
+        }
+    }
+
+    private static final Layout FIRST_AC = new Layout("H", 2, 24, L, U);
+    private static final Layout TWO_TIER = new Layout("A", 3, 48, L, U, L, U, SL, SU);
+    private static final Layout THREE_TIER = new Layout("B", 5, 64, L, M, U, L, M, U, SL, SU);
+    private static final Layout SLEEPER = new Layout("S", 8, 72, L, M, U, L, M, U, SL, SU);
+    private static final Layout GENERAL = new Layout("GS", 4, 90);
+
+    static Layout layoutFor(String classType) {
+        if (classType == null) return GENERAL;
+        switch (classType) {
+            case "AC 1st": return FIRST_AC;
+            case "AC 2-tier": return TWO_TIER;
+            case "AC 3-tier": return THREE_TIER;
+            case "Sleeper": return SLEEPER;
+            default: return GENERAL;
+        }
+    }
+
+    private final ConcurrentMap<Key, Coaches> inventory = new ConcurrentHashMap<>();
+
+    void clear() {
+        inventory.clear();
+    }
+
+    // Forget the berths of departures before the day (they can no longer be sold or released)
+    void dropBefore(LocalDate day) {
+        long d = day.toEpochDay();
+        inventory.keySet().removeIf(k -> k.day < d);
+    }
+
+    /**
+     * Take a berth for the journey's segments, preferring the requested type and
+     * falling back to any berth free over those segments.
+     *
+     * @return seat label, or null when nothing is free for that journey
+     */
+    String allocate(String trainNo, LocalDate date, String classType, long segments, Berth preference) {
+        if (segments == 0) throw new IllegalArgumentException("empty journey");
+        Coaches c = coaches(trainNo, date, classType);
+        int seat = -1;
+        if (preference != null && preference != Berth.ANY) seat = c.takeFirst(preference, segments);
+        if (seat < 0) seat = c.takeFirst(Berth.ANY, segments);
+        return seat < 0 ? null : c.layout.label(seat);
+    }
+
+    // Mark a specific seat as sold for the segments (rebuilding from stored bookings); false if invalid or taken
+    boolean claim(String trainNo, LocalDate date, String classType, long segments, String seat) {
+        Coaches c = coaches(trainNo, date, classType);
+        int i = c.layout.indexOf(seat);
+        return i >= 0 && c.take(i, segments);
+    }
+
+    // Return a seat's segments to the pool; false if they were not all sold
+    boolean release(String trainNo, LocalDate date, String classType, long segments, String seat) {
+        Coaches c = inventory.get(new Key(trainNo, date, classType));
+        if (c == null) return false;
+        int i = c.layout.indexOf(seat);
+        return i >= 0 && c.give(i, segments);
+    }
+
+    // Berths free over all of the given segments
+    int available(String trainNo, LocalDate date, String classType, long segments) {
+        Coaches c = inventory.get(new Key(trainNo, date, classType));
+        return c == null ? layoutFor(classType).capacity() : c.countFree(segments);
+    }
+
+    private Coaches coaches(String trainNo, LocalDate date, String classType) {
+        return inventory.computeIfAbsent(new Key(trainNo, date, classType), k -> new Coaches(layoutFor(k.classType)));
+    }
+
+    private static final class Coaches {
+        final Layout layout;
+        final AtomicLongArray occupied;   // per seat: bitmask of sold segments
+
+        Coaches(Layout layout) {
+            this.layout = layout;
+            this.occupied = new AtomicLongArray(layout.capacity());
+        }
+
+        // First-fit over the berths of the given type; -1 if none is free for the segments
+        int takeFirst(Berth type, long segments) {
+            for (int seat : layout.eligible[type.ordinal()]) {
+                if ((occupied.get(seat) & segments) == 0 && take(seat, segments)) return seat;
+            }
+            return -1;
+        }
+
+        boolean take(int seat, long segments) {
+            while (true) {
+                long cur = occupied.get(seat);
+                if ((cur & segments) != 0) return false;
+                if (occupied.compareAndSet(seat, cur, cur | segments)) return true;
+            }
+        }
+
+        boolean give(int seat, long segments) {
+            while (true) {
+                long cur = occupied.get(seat);
+                if ((cur & segments) != segments) return false;
+                if (occupied.compareAndSet(seat, cur, cur & ~segments)) return true;
+            }
+        }
+
+        int countFree(long segments) {
+            int n = 0;
+            for (int seat = 0; seat < occupied.length(); seat++) {
+                if ((occupied.get(seat) & segments) == 0) n++;
+            }
+            return n;
+        }
+    }
+
+    // A departure: train, travel day and class (also keys the Waitlist)
+    static final class Key {
+        final String trainNo;
+        final long day;
+        final String classType;
+
+        Key(String trainNo, LocalDate date, String classType) {
+            this.trainNo = trainNo == null ? "" : trainNo.trim();
+            this.day = date.toEpochDay();
+            this.classType = classType == null ? "" : classType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return day == k.day && trainNo.equals(k.trainNo) && classType.equals(k.classType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainNo, day, classType);
+        }
+    }
+}
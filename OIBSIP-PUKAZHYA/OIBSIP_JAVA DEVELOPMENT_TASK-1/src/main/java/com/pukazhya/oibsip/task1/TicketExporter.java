@@ -0,0 +1,323 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * TicketExporter.java
+ * Renders many tickets into one file: a ZIP of PNR_ticket.txt entries, or one
+ * text file with a form feed between tickets (one printed page each)
+ *
+ * The ticket layout is compiled once into literal runs and fields, so a ticket
+ * is a straight sequence of appends with no DecimalFormat, formatter or line
+ * list. Tickets are rendered in chunks on the common pool, each worker reusing
+ * its own buffers, while the calling thread writes finished chunks strictly in
+ * input order; at most a few chunks per core are in flight, so memory stays
+ * bounded however many tickets are exported. ZIP entries are stored, not
+ * deflated: tickets are a few hundred bytes each, so per-entry compression
+ * saves little and would be the one serial step; each worker computes the
+ * CRC32 of its own tickets instead.
+ *
+ * The file is written next to the target and moved into place when complete.
+ */
+final class TicketExporter {
+    enum Format {
+        ZIP, TEXT;
+
+        // ZIP for *.zip, otherwise concatenated text
+        static Format of(Path out) {
+            return out.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip") ? ZIP : TEXT;
+        }
+    }
+
+    static final Template TICKET = Template.compile(String.join("\n",
+            "====================================================",
+            "               PUKAZHYA RAILWAYS (Demo)",
+            "----------------------------------------------------",
+            "PNR: {pnr}",
+            "Passenger: {name}   Age: {age}",
+            "Train: {trainName} ({trainNo})",
+            "Class: {classType}{seat}",
+            "From: {from}   To: {to}",
+            "Journey Date: {travelDate}",
+            "Booked At: {bookedAt}",
+            "Fare: ₹{fare}",
+            "Status: {status}",
+            "{cancelReason}----------------------------------------------------",
+            "Generated by: PUKAZHYA - Reservation System",
+            "====================================================",
+            ""));
+
+    private static final int CHUNK = 256;
+    private static final char PAGE_BREAK = '\f';
+
+    private static final ThreadLocal<StringBuilder> TEXT_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+    private static final ThreadLocal<Utf8Buffer> BYTE_BUFFER = ThreadLocal.withInitial(Utf8Buffer::new);
+
+    private TicketExporter() { }
+
+    // One ticket as text (line breaks are the platform separator)
+    static String render(Reservation r) {
+        StringBuilder sb = new StringBuilder(768);
+        TICKET.render(r, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Write the tickets, in list order, to one file (format from its extension).
+     *
+     * @return bytes of ticket text written (before compression)
+     */
+    static long export(List<Reservation> tickets, Path out) throws IOException {
+        return export(tickets, out, Format.of(out));
+    }
+
+    static long export(List<Reservation> tickets, Path out, Format format) throws IOException {
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        long bytes = 0;
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            ZipOutputStream zip = null;
+            if (format == Format.ZIP) {
+                zip = new ZipOutputStream(file);
+                zip.setMethod(ZipOutputStream.STORED);
+            }
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int window = Math.max(2, 2 * pool.getParallelism());
+            ArrayDeque<CompletableFuture<Chunk>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < tickets.size() || !pending.isEmpty()) {
+                while (next < tickets.size() && pending.size() < window) {
+                    List<Reservation> slice = tickets.subList(next, Math.min(tickets.size(), next + CHUNK));
+                    boolean separate = format == Format.TEXT;
+                    boolean first = next == 0;
+                    // a lone chunk is cheaper to render here than to hand off
+                    pending.add(tickets.size() <= CHUNK
+                            ? CompletableFuture.completedFuture(renderChunk(slice, separate, first))
+                            : CompletableFuture.supplyAsync(() -> renderChunk(slice, separate, first), pool));
+                    next += slice.size();
+                }
+                Chunk c = join(pending.poll());
+                if (zip != null) c.writeEntries(zip);
+                else file.write(c.bytes);
+                bytes += c.bytes.length;
+            }
+            if (zip != null) zip.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return bytes;
+    }
+
+    private static Chunk join(CompletableFuture<Chunk> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    // Runs on a pool thread; only the returned arrays are allocated
+    private static Chunk renderChunk(List<Reservation> slice, boolean pageBreaks, boolean first) {
+        StringBuilder sb = TEXT_BUFFER.get();
+        Utf8Buffer buf = BYTE_BUFFER.get();
+        buf.size = 0;
+        CRC32 crc = pageBreaks ? null : new CRC32();
+        String[] names = new String[slice.size()];
+        int[] ends = new int[slice.size()];
+        long[] crcs = new long[slice.size()];
+        for (int i = 0; i < slice.size(); i++) {
+            Reservation r = slice.get(i);
+            sb.setLength(0);
+            if (pageBreaks && (i > 0 || !first)) sb.append(PAGE_BREAK);
+            TICKET.render(r, sb);
+            int start = buf.size;
+            buf.append(sb);
+            names[i] = r.getPnr() + "_ticket.txt";
+            ends[i] = buf.size;
+            if (crc != null) {
+                crc.reset();
+                crc.update(buf.bytes, start, buf.size - start);
+                crcs[i] = crc.getValue();
+            }
+        }
+        return new Chunk(Arrays.copyOf(buf.bytes, buf.size), names, ends, crcs);
+    }
+
+    // Rendered tickets of one chunk, back to back
+    private static final class Chunk {
+        final byte[] bytes;
+        final String[] names;
+        final int[] ends;
+        final long[] crcs;
+
+        Chunk(byte[] bytes, String[] names, int[] ends, long[] crcs) {
+            this.bytes = bytes;
+            this.names = names;
+            this.ends = ends;
+            this.crcs = crcs;
+        }
+
+        // Stored entries: the CRCs were taken by the workers, so writing is a copy
+        void writeEntries(ZipOutputStream zip) throws IOException {
+            int start = 0;
+            for (int i = 0; i < names.length; i++) {
+                ZipEntry e = new ZipEntry(names[i]);
+                e.setSize(ends[i] - start);
+                e.setCompressedSize(ends[i] - start);
+                e.setCrc(crcs[i]);
+                zip.putNextEntry(e);
+                zip.write(bytes, start, ends[i] - start);
+                zip.closeEntry();
+                start = ends[i];
+            }
+        }
+    }
+
+    // Growable byte array with an ASCII fast path for UTF-8 encoding
+    private static final class Utf8Buffer {
+        byte[] bytes = new byte[64 * 1024];
+        int size;
+
+        void append(CharSequence s) {
+            int n = s.length();
+            if (size + n * 3 > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n * 3));
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | c >> 6);
+                    bytes[size++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    bytes[size++] = (byte) (0xF0 | cp >> 18);
+                    bytes[size++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | cp & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    bytes[size++] = '?';
+                } else {
+                    bytes[size++] = (byte) (0xE0 | c >> 12);
+                    bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+    }
+
+    /**
+     * Text with {field} placeholders, split once into literals and fields.
+     * Line breaks in the text become the platform separator.
+     */
+    static final class Template {
+        private final String[] literals;   // literals[i] precedes fields[i]; one extra at the end
+        private final Field[] fields;
+
+        private Template(String[] literals, Field[] fields) {
+            this.literals = literals;
+            this.fields = fields;
+        }
+
+        static Template compile(String text) {
+            text = text.replace("\n", System.lineSeparator());
+            List<String> literals = new ArrayList<>();
+            List<Field> fields = new ArrayList<>();
+            int at = 0;
+            for (int open = text.indexOf('{'); open >= 0; open = text.indexOf('{', at)) {
+                int close = text.indexOf('}', open);
+                if (close < 0) throw new IllegalArgumentException("Unclosed placeholder at " + open);
+                literals.add(text.substring(at, open));
+                fields.add(Field.named(text.substring(open + 1, close)));
+                at = close + 1;
+            }
+            literals.add(text.substring(at));
+            return new Template(literals.toArray(new String[0]), fields.toArray(new Field[0]));
+        }
+
+        void render(Reservation r, StringBuilder sb) {
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].append(r, sb.append(literals[i]));
+            }
+            sb.append(literals[fields.length]);
+        }
+    }
+
+    enum Field {
+        PNR("pnr") { void append(Reservation r, StringBuilder sb) { sb.append(r.getPnr()); } },
+        NAME("name") { void append(Reservation r, StringBuilder sb) { sb.append(r.getPassenger().getName()); } },
+        AGE("age") { void append(Reservation r, StringBuilder sb) { sb.append(r.getPassenger().getAge()); } },
+        TRAIN_NO("trainNo") { void append(Reservation r, StringBuilder sb) { sb.append(r.getTrainNo()); } },
+        TRAIN_NAME("trainName") { void append(Reservation r, StringBuilder sb) { sb.append(r.getTrainName()); } },
+        CLASS("classType") { void append(Reservation r, StringBuilder sb) { sb.append(r.getClassType()); } },
+        FROM("from") { void append(Reservation r, StringBuilder sb) { sb.append(r.getFrom()); } },
+        TO("to") { void append(Reservation r, StringBuilder sb) { sb.append(r.getTo()); } },
+        TRAVEL_DATE("travelDate") { void append(Reservation r, StringBuilder sb) { ReservationCodec.appendDate(sb, r.getTravelDate()); } },
+        BOOKED_AT("bookedAt") { void append(Reservation r, StringBuilder sb) { ReservationCodec.appendDateTime(sb, r.getBookingTime()); } },
+        FARE("fare") { void append(Reservation r, StringBuilder sb) { appendGrouped(sb, Math.round(r.getFare())); } },
+        STATUS("status") { void append(Reservation r, StringBuilder sb) { sb.append(r.getStatus()); } },
+        // "   Seat: B3-42", or nothing for rows without a berth
+        SEAT("seat") {
+            void append(Reservation r, StringBuilder sb) {
+                if (!r.getSeat().isEmpty()) sb.append("   Seat: ").append(r.getSeat());
+            }
+        },
+        // a whole "Cancel Reason: ..." line, or nothing
+        CANCEL_REASON("cancelReason") {
+            void append(Reservation r, StringBuilder sb) {
+                if (!r.getCancelReason().isEmpty()) sb.append("Cancel Reason: ").append(r.getCancelReason()).append(System.lineSeparator());
+            }
+        };
+
+        private final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        abstract void append(Reservation r, StringBuilder sb);
+
+        static Field named(String key) {
+            for (Field f : values()) if (f.key.equals(key)) return f;
+            throw new IllegalArgumentException("Unknown ticket field: {" + key + "}");
+        }
+    }
+
+    // Same text as new DecimalFormat("#,##0").format(v) in an English locale
+    static StringBuilder appendGrouped(StringBuilder sb, long v) {
+        if (v < 0) {
+            sb.append('-');
+            if (v == Long.MIN_VALUE) return sb.append("9,223,372,036,854,775,808");
+            v = -v;
+        }
+        if (v < 1000) return sb.append(v);
+        appendGrouped(sb, v / 1000);
+        int rest = (int) (v % 1000);
+        sb.append(',');
+        if (rest < 100) sb.append('0');
+        if (rest < 10) sb.append('0');
+        return sb.append(rest);
+    }
+}
@@ -0,0 +1,77 @@
+package com.pukazhya.oibsip.task1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * TrainRoute.java
+ * A train and its stops, in running order
+ *
+ * Segment i is the leg from stop i to stop i+1; a journey is the bitmask of
+ * the legs it rides, which is what {@link SeatInventory} books against.
+ * Each stop also carries its distance from the first stop, so the distance
+ * between any two stops is one subtraction.
+ * Station names match case-insensitively.
+ */
+final class TrainRoute {
+    static final int MAX_STOPS = 64;   // 63 segments fit in one mask
+
+    private final String trainNo;
+    private final String name;
+    private final List<String> stops;
+    private final int[] km;   // per stop: distance from the first stop
+
+    TrainRoute(String trainNo, String name, List<String> stops, int[] km) {
+        if (stops.size() < 2 || stops.size() > MAX_STOPS) {
+            throw new IllegalArgumentException("Route of " + trainNo + " needs 2.." + MAX_STOPS + " stops");
+        }
+        if (km.length != stops.size()) throw new IllegalArgumentException("Route of " + trainNo + " needs one distance per stop");
+        for (int i = 1; i < km.length; i++) {
+            if (km[i] <= km[i - 1]) throw new IllegalArgumentException("Distances of " + trainNo + " must increase along the route");
+        }
+        this.trainNo = trainNo;
+        this.name = name;
+        List<String> copy = new ArrayList<>(stops.size());
+        for (String s : stops) copy.add(s.trim().toUpperCase(Locale.ROOT));
+        this.stops = Collections.unmodifiableList(copy);
+        this.km = km.clone();
+    }
+
+    String getTrainNo() { return trainNo; }
+    String getName() { return name; }
+    List<String> getStops() { return stops; }
+
+    // Position of the station on the route, or -1
+    int indexOf(String station) {
+        if (station == null) return -1;
+        String s = station.trim();
+        for (int i = 0; i < stops.size(); i++) {
+            if (stops.get(i).equalsIgnoreCase(s)) return i;
+        }
+        return -1;
+    }
+
+    // Whether from comes before to on this route
+    boolean serves(String from, String to) {
+        int a = indexOf(from), b = indexOf(to);
+        return a >= 0 && b > a;
+    }
+
+    // Kilometres between two stops, or -1 if the route does not run from -> to
+    int distanceKm(String from, String to) {
+        int a = indexOf(from), b = indexOf(to);
+        return a >= 0 && b > a ? km[b] - km[a] : -1;
+    }
+
+    /**
+     * Segment mask of a journey between two stops; journeys this route does
+     * not serve (unknown stations, wrong direction) occupy the whole run.
+     */
+    long segments(String from, String to) {
+        int a = indexOf(from), b = indexOf(to);
+        if (a < 0 || b <= a) return SeatInventory.WHOLE_RUN;
+        return ((1L << (b - a)) - 1) << a;
+    }
+}
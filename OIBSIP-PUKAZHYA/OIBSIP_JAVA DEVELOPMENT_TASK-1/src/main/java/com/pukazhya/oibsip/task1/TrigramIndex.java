@@ -0,0 +1,165 @@
+package com.pukazhya.oibsip.task1;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * TrigramIndex.java
+ * Inverted index of lower-cased character trigrams -> record ids
+ *
+ * Record ids are row numbers of the service's reservation store. They are only
+ * ever appended in increasing order, so every posting list stays sorted and
+ * substring queries are answered by intersecting the lists of the query's
+ * trigrams (smallest first) and verifying the few surviving candidates
+ * against the text supplied by the caller (the index keeps no copy of it).
+ *
+ * Not thread-safe: the owning month partition guards it with its read/write lock.
+ */
+final class TrigramIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int size;
+
+    void clear() {
+        postings.clear();
+        size = 0;
+    }
+
+    int size() { return size; }
+
+    // Index text under the next id (must equal the current size)
+    void add(int id, String text) {
+        if (id != size) throw new IllegalArgumentException("ids must be appended in order: " + id);
+        String key = normalize(text);
+        size++;
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            postings.computeIfAbsent(pack(key, i), k -> new Postings()).add(id);
+        }
+    }
+
+    void writeTo(BinarySnapshot.Out out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(postings.size());
+        for (Map.Entry<Long, Postings> e : postings.entrySet()) {
+            out.writeLong(e.getKey());
+            out.writeInt(e.getValue().size);
+            out.writeInts(e.getValue().ids, e.getValue().size);
+        }
+    }
+
+    // Replace the contents with a section written by writeTo
+    void readFrom(BinarySnapshot.In in) throws IOException {
+        clear();
+        int n = in.readInt();
+        int grams = in.readCount(8 + 4);
+        if (n < 0) throw new IOException("Corrupt trigram index header");
+        for (int g = 0; g < grams; g++) {
+            long key = in.readLong();
+            int len = in.readCount(4);
+            if (len > n) throw new IOException("Corrupt posting list");
+            Postings p = new Postings();
+            p.ids = new int[Math.max(len, 1)];
+            p.size = len;
+            in.readInts(p.ids, len);
+            postings.put(key, p);
+        }
+        size = n;
+    }
+
+    // Ids whose text (as returned by textOf) contains the query, case-insensitive, in ascending order
+    int[] search(String query, IntFunction<String> textOf) {
+        String q = normalize(query);
+        if (q.isEmpty()) return EMPTY;
+        if (q.length() < 3) return scan(q, textOf);
+
+        List<Postings> lists = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            long g = pack(q, i);
+            if (!seen.add(g)) continue;
+            Postings p = postings.get(g);
+            if (p == null) return EMPTY;
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        Postings first = lists.get(0);
+        int[] cur = Arrays.copyOf(first.ids, first.size);
+        int n = cur.length;
+        for (int l = 1; l < lists.size() && n > 0; l++) n = intersect(cur, n, lists.get(l));
+
+        // trigram hits are a superset (order is not checked), so confirm each candidate
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (normalize(textOf.apply(cur[i])).contains(q)) cur[m++] = cur[i];
+        }
+        return Arrays.copyOf(cur, m);
+    }
+
+    /**
+     * Upper bound on the ids search() would return: the shortest posting list
+     * among the query's trigrams (0 if one is absent), or -1 when the query is
+     * too short to use the index.
+     */
+    int estimate(String query) {
+        String q = normalize(query);
+        if (q.length() < 3) return -1;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            Postings p = postings.get(pack(q, i));
+            if (p == null) return 0;
+            best = Math.min(best, p.size);
+        }
+        return best;
+    }
+
+    // Queries shorter than a trigram fall back to a scan
+    private int[] scan(String q, IntFunction<String> textOf) {
+        int[] out = new int[16];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (normalize(textOf.apply(i)).contains(q)) {
+                if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                out[n++] = i;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // In-place intersection of cur[0..n) with a sorted posting list, galloping through the longer side
+    private static int intersect(int[] cur, int n, Postings other) {
+        int m = 0;
+        int lo = 0;
+        for (int i = 0; i < n && lo < other.size; i++) {
+            int at = Arrays.binarySearch(other.ids, lo, other.size, cur[i]);
+            if (at >= 0) {
+                cur[m++] = cur[i];
+                lo = at + 1;
+            } else {
+                lo = -at - 1;
+            }
+        }
+        return m;
+    }
+
+    static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long pack(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;   // repeated trigram in one name
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pukazhya.oibsip.task1;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waitlist.java
+ * Waitlisted bookings per (train, travel date, class), in booking order
+ *
+ * Each departure has a skip list of tickets keyed by a ticket number taken
+ * from one counter when the passenger joins, so the head is always the
+ * earliest booking: joining, leaving and promoting the head are O(log n)
+ * however long the queue is, and the length is kept in a counter beside it.
+ * A PNR -> ticket map finds the entry of a waitlisted booking that is
+ * cancelled; it ignores case, like PNR lookups in the store.
+ *
+ * Tickets are also queued by their leg set. A freed berth can only go to the
+ * earliest ticket of each leg set (later ones need the same legs), so
+ * {@link #firstPerLegs} finds every candidate in O(leg sets) however long the
+ * queue is; a route of n stops has at most n(n-1)/2 leg sets.
+ *
+ * Changes to one departure's queue are made by the service under the lock of
+ * that departure's month partition, so they never race each other; lengths,
+ * heads and positions can be read from any thread without a lock.
+ */
+final class Waitlist {
+
+    // One waitlisted booking; legs are its journey's route segments (see SeatInventory)
+    static final class Ticket {
+        final String pnr;
+        final long legs;
+        final long number;
+        final SeatInventory.Key departure;
+
+        private Ticket(String pnr, long legs, long number, SeatInventory.Key departure) {
+            this.pnr = pnr;
+            this.legs = legs;
+            this.number = number;
+            this.departure = departure;
+        }
+    }
+
+    private static final class Queue {
+        final ConcurrentSkipListMap<Long, Ticket> tickets = new ConcurrentSkipListMap<>();
+        // the same tickets by leg set; emptied sets are kept (there are few of them)
+        final ConcurrentMap<Long, ConcurrentSkipListMap<Long, Ticket>> byLegs = new ConcurrentHashMap<>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    private final ConcurrentMap<SeatInventory.Key, Queue> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Ticket> byPnr = new ConcurrentHashMap<>();
+    private final AtomicLong numbers = new AtomicLong();
+
+    /**
+     * Put a booking at the end of its departure's queue.
+     *
+     * @return its position (1 = next to be promoted)
+     */
+    int add(String trainNo, LocalDate date, String classType, String pnr, long legs) {
+        SeatInventory.Key key = new SeatInventory.Key(trainNo, date, classType);
+        Queue q = queues.computeIfAbsent(key, k -> new Queue());
+        Ticket t = new Ticket(pnr, legs, numbers.incrementAndGet(), key);
+        q.tickets.put(t.number, t);
+        q.byLegs.computeIfAbsent(legs, l -> new ConcurrentSkipListMap<>()).put(t.number, t);
+        byPnr.put(key(pnr), t);
+        return q.size.incrementAndGet();
+    }
+
+    // Take a booking off its queue (promoted or cancelled); false if it was not waitlisted
+    boolean remove(String pnr) {
+        if (pnr == null) return false;
+        Ticket t = byPnr.remove(key(pnr));
+        if (t == null) return false;
+        Queue q = queues.get(t.departure);
+        if (q != null && q.tickets.remove(t.number) != null) {
+            q.byLegs.get(t.legs).remove(t.number);
+            q.size.decrementAndGet();
+        }
+        return true;
+    }
+
+    // The earliest ticket of every leg set that shares a leg with legs, earliest first
+    List<Ticket> firstPerLegs(String trainNo, LocalDate date, String classType, long legs) {
+        Queue q = queues.get(new SeatInventory.Key(trainNo, date, classType));
+        if (q == null) return List.of();
+        List<Ticket> out = new ArrayList<>();
+        for (Map.Entry<Long, ConcurrentSkipListMap<Long, Ticket>> e : q.byLegs.entrySet()) {
+            if ((e.getKey() & legs) == 0) continue;
+            Map.Entry<Long, Ticket> first = e.getValue().firstEntry();
+            if (first != null) out.add(first.getValue());
+        }
+        out.sort(Comparator.comparingLong(t -> t.number));
+        return out;
+    }
+
+    // Bookings waiting for the departure
+    int size(String trainNo, LocalDate date, String classType) {
+        Queue q = queues.get(new SeatInventory.Key(trainNo, date, classType));
+        return q == null ? 0 : q.size.get();
+    }
+
+    // Position of a waitlisted booking (1 = next), or 0 if it is not waitlisted; O(position)
+    int position(String pnr) {
+        if (pnr == null) return 0;
+        Ticket t = byPnr.get(key(pnr));
+        if (t == null) return 0;
+        Queue q = queues.get(t.departure);
+        return q == null ? 0 : q.tickets.headMap(t.number).size() + 1;
+    }
+
+    private static String key(String pnr) {
+        return pnr.trim().toUpperCase(Locale.ROOT);
+    }
+
+    void clear() {
+        queues.clear();
+        byPnr.clear();
+    }
+
+    // Forget the queues of departures before the day (they can no longer be promoted)
+    void dropBefore(LocalDate day) {
+        long d = day.toEpochDay();
+        queues.keySet().removeIf(k -> k.day < d);
+        byPnr.values().removeIf(t -> t.departure.day < d);
+    }
+}
@@ -0,0 +1,114 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * BinarySnapshotTest.java
+ * Snapshot round trip, and fallback to the CSV when the snapshot is damaged
+ */
+class BinarySnapshotTest {
+    @TempDir
+    Path dir;
+
+    private Path base, snap;
+
+    @BeforeEach
+    void baseFile() throws IOException {
+        base = Files.writeString(dir.resolve("base.csv"), "x\n");
+        snap = BinarySnapshot.pathFor(base);
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        BinarySnapshot.write(snap, base, out -> {
+            out.writeInt(42);
+            out.writeString("CHENNAI");
+        });
+        List<Object> seen = new ArrayList<>();
+        assertTrue(BinarySnapshot.read(snap, base, in -> {
+            seen.add(in.readInt());
+            seen.add(in.readString());
+        }));
+        assertEquals(List.of(42, "CHENNAI"), seen);
+    }
+
+    @Test
+    void damagedBodyIsRejectedBeforeParsing() throws IOException {
+        BinarySnapshot.write(snap, base, out -> out.writeString("CHENNAI"));
+        byte[] b = Files.readAllBytes(snap);
+        b[b.length - 16 - 1] ^= 0x20;   // last body byte, just before the trailer
+        Files.write(snap, b);
+        AtomicBoolean parsed = new AtomicBoolean();
+        assertFalse(BinarySnapshot.read(snap, base, in -> parsed.set(true)));
+        assertFalse(parsed.get());
+    }
+
+    @Test
+    void countLargerThanTheBodyIsRejected() throws IOException {
+        // a checksum-valid body whose row count would need gigabytes
+        BinarySnapshot.write(snap, base, out -> out.writeInt(Integer.MAX_VALUE - 8));
+        assertFalse(BinarySnapshot.read(snap, base, in -> new ReservationStore().readFrom(in)));
+        BinarySnapshot.write(snap, base, out -> out.writeInt(Integer.MAX_VALUE - 8));
+        assertFalse(BinarySnapshot.read(snap, base, BinarySnapshot.In::readString));
+    }
+
+    @Test
+    void snapshotOfAnotherBaseFileIsIgnored() throws IOException {
+        BinarySnapshot.write(snap, base, out -> out.writeInt(42));
+        Files.writeString(base, "x\ny\n");
+        assertFalse(BinarySnapshot.read(snap, base, BinarySnapshot.In::readInt));
+    }
+
+    @Test
+    void serviceFallsBackToCsvWhenSnapshotIsCorrupt() throws IOException {
+        Path data = dir.resolve("reservations.csv");
+        LocalDate day = LocalDate.now().plusDays(30);
+        List<String> pnrs = new ArrayList<>();
+        ReservationService service = new ReservationService(data);
+        try {
+            for (int i = 0; i < 20; i++) {
+                pnrs.add(service.book("Passenger " + i, 30, "22401", "Rajdhani Express", "AC 2-tier",
+                        "CHENNAI", "DELHI", day).getPnr());
+            }
+        } finally {
+            service.close();
+        }
+
+        List<Path> snapshots;
+        try (Stream<Path> s = Files.walk(dir)) {
+            snapshots = s.filter(p -> p.getFileName().toString().endsWith(".snap")).toList();
+        }
+        assertFalse(snapshots.isEmpty());
+        for (Path p : snapshots) {
+            byte[] b = Files.readAllBytes(p);
+            b[b.length / 2] ^= 0x55;
+            Files.write(p, b);
+        }
+
+        service = new ReservationService(data);
+        try {
+            for (String pnr : pnrs) {
+                Reservation r = service.findByPNR(pnr);
+                assertNotNull(r, pnr);
+                assertEquals("Booked", r.getStatus(), pnr);
+            }
+        } finally {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.pukazhya.oibsip.task1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * CodecBenchmark.java
+ * Micro-benchmark: ReservationCodec vs. the previous String/DateTimeFormatter row path
+ *
+ * Lives with the tests so it stays out of the application jar. Run:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass="com.pukazhya.oibsip.task1.CodecBenchmark" -Dexec.args="200000"
+ *
+ * Each case gets warm-up rounds before the measured ones; the checksum is
+ * printed so the JIT cannot drop the work.
+ */
+public final class CodecBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static final DateTimeFormatter DTF_FULL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DTF_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] lines = sampleRows(rows);
+        byte[][] bytes = new byte[rows][];
+        for (int i = 0; i < rows; i++) bytes[i] = lines[i].getBytes(StandardCharsets.UTF_8);
+
+        ReservationCodec codec = new ReservationCodec();
+        List<Reservation> decoded = new ArrayList<>(rows);
+        for (byte[] b : bytes) decoded.add(codec.parse(ByteBuffer.wrap(b), 0, b.length));
+
+        System.out.printf(Locale.US, "%,d rows, %d warm-up + %d measured rounds%n", rows, WARMUP_ROUNDS, MEASURED_ROUNDS);
+        report("decode  legacy", rows, () -> {
+            long sum = 0;
+            for (String ln : lines) {
+                Reservation r = legacyParse(ln);
+                if (r != null) sum += r.getPassenger().getAge();
+            }
+            return sum;
+        });
+        report("decode  codec ", rows, () -> {
+            long sum = 0;
+            for (byte[] b : bytes) {
+                Reservation r = codec.parse(ByteBuffer.wrap(b), 0, b.length);
+                if (r != null) sum += r.getPassenger().getAge();
+            }
+            return sum;
+        });
+        report("encode  legacy", rows, () -> {
+            long sum = 0;
+            for (Reservation r : decoded) sum += legacyRow(r).length();
+            return sum;
+        });
+        StringBuilder sb = new StringBuilder(192);
+        report("encode  codec ", rows, () -> {
+            long sum = 0;
+            for (Reservation r : decoded) {
+                sb.setLength(0);
+                codec.append(r, sb);
+                sum += sb.length();
+            }
+            return sum;
+        });
+    }
+
+    private interface Case {
+        long run();
+    }
+
+    private static void report(String name, int rows, Case c) {
+        long check = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) check += c.run();
+        long[] nanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            check += c.run();
+            nanos[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(nanos);
+        long median = nanos[MEASURED_ROUNDS / 2];
+        System.out.printf(Locale.US, "%s  %8.1f ns/row  %,12.0f rows/s  (checksum %d)%n",
+                name, (double) median / rows, rows * 1e9 / median, check);
+    }
+
+    static String[] sampleRows(int n) {
+        String[][] trains = {{"22401", "Rajdhani Express"}, {"12049", "Shatabdi Deluxe"}, {"12345", "InterCity Express"}, {"22411", "Duronto"}};
+        String[] classes = {"AC 1st", "AC 2-tier", "AC 3-tier", "Sleeper", "General"};
+        String[] stations = {"CHENNAI", "COIMBATORE", "BANGALORE", "MADURAI", "MUMBAI", "DELHI"};
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) {
+            String[] t = trains[i % trains.length];
+            boolean cancelled = i % 9 == 0;
+            out[i] = "PZ2511031348" + String.format(Locale.US, "%06d", i) + ",Passenger " + i + "," + (18 + i % 60) + ","
+                    + t[0] + "," + t[1] + "," + classes[i % classes.length] + ","
+                    + stations[i % stations.length] + "," + stations[(i + 2) % stations.length] + ","
+                    + "2025-11-03 13:48:" + String.format(Locale.US, "%02d", i % 60) + ","
+                    + "2025-12-" + String.format(Locale.US, "%02d", 1 + i % 28) + "," + (400 + (i % 50) * 5) + ".00,"
+                    + (cancelled ? "Cancelled,\"change of plan, \"\"urgent\"\"\"" : "Booked,");
+        }
+        return out;
+    }
+
+    /* ----------------------------
+       Previous implementation, kept here only as the baseline
+       ---------------------------- */
+
+    private static Reservation legacyParse(String line) {
+        try {
+            List<String> cols = legacySplit(line);
+            if (cols.size() < 13) return null;
+            return new Reservation(cols.get(0), new Passenger(cols.get(1), Integer.parseInt(cols.get(2))), cols.get(3), cols.get(4),
+                    cols.get(5), cols.get(6), cols.get(7), LocalDateTime.parse(cols.get(8), DTF_FULL),
+                    LocalDate.parse(cols.get(9), DTF_DATE), Double.parseDouble(cols.get(10)), cols.get(11), cols.get(12));
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static List<String> legacySplit(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (inQuotes) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') { cur.append('"'); i++; }
+                    else inQuotes = false;
+                } else cur.append(ch);
+            } else if (ch == '"') inQuotes = true;
+            else if (ch == ',') { out.add(cur.toString()); cur.setLength(0); }
+            else cur.append(ch);
+        }
+        out.add(cur.toString());
+        return out;
+    }
+
+    private static String legacyRow(Reservation r) {
+        List<String> cols = Arrays.asList(r.getPnr(), r.getPassenger().getName(), String.valueOf(r.getPassenger().getAge()),
+                r.getTrainNo(), r.getTrainName(), r.getClassType(), r.getFrom(), r.getTo(),
+                r.getBookingTime().format(DTF_FULL), r.getTravelDate().format(DTF_DATE),
+                String.format(Locale.US, "%.2f", r.getFare()), r.getStatus(), r.getCancelReason());
+        return cols.stream().map(s -> {
+            boolean need = s.contains(",") || s.contains("\"") || s.contains("\n") || s.contains("\r");
+            String escaped = s.replace("\"", "\"\"");
+            return need ? "\"" + escaped + "\"" : escaped;
+        }).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,149 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * CsvFileLoaderTest.java
+ * Chunked loading keeps file order and records with quoted newlines whole,
+ * and a stray or unbalanced quote costs only its own row
+ */
+class CsvFileLoaderTest {
+    private static final long CHUNK = 64 << 10;
+
+    @TempDir
+    Path dir;
+
+    private final ForkJoinPool pool = new ForkJoinPool(8);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    // The record's text as it is in the file; rows starting with "bad" are rejected
+    private static final class Lines implements CsvFileLoader.RecordParser<String> {
+        private String error;
+
+        @Override
+        public String parse(ByteBuffer buf, int from, int to) {
+            byte[] b = new byte[to - from];
+            buf.get(from, b);
+            String s = new String(b, StandardCharsets.UTF_8);
+            error = s.startsWith("bad") ? "bad row" : null;
+            return error == null ? s : null;
+        }
+
+        @Override
+        public String error() {
+            return error;
+        }
+    }
+
+    @Test
+    void recordsWithQuotedNewlinesSurviveChunking() throws IOException {
+        List<String> expected = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 4 << 20; i++) {
+            String row = i % 7 == 0 ? "PNR" + i + ",\"line one\nline two\"," + i : "PNR" + i + ",plain," + i;
+            expected.add(row);
+            text.append(row).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("rows.csv"), text);
+        CsvFileLoader.Result<String> r = CsvFileLoader.load(file, Lines::new, pool);
+        assertEquals(expected, r.rows);
+        assertEquals(0, r.stats.skipped);
+    }
+
+    @Test
+    void recordsWithQuotedNewlinesSurviveSmallChunks() throws IOException {
+        List<String> expected = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 2 << 20; i++) {
+            String row = i % 7 == 0 ? "PNR" + i + ",\"line one\nline two\"," + i : "PNR" + i + ",plain," + i;
+            expected.add(row);
+            text.append(row).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("rows.csv"), text);
+        CsvFileLoader.Result<String> r = CsvFileLoader.load(file, Lines::new, pool, CHUNK);
+        assertEquals(expected, r.rows);
+        assertEquals(0, r.stats.skipped);
+    }
+
+    @Test
+    void rowsTheParserRejectsAreCountedAsSkipped() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) text.append(i % 10 == 0 ? "bad" : "PNR" + i).append(",x\r\n");
+        Path file = Files.writeString(dir.resolve("rows.csv"), text);
+        CsvFileLoader.Result<String> r = CsvFileLoader.load(file, Lines::new, pool);
+        assertEquals(90_000, r.rows.size());
+        assertEquals(10_000, r.stats.skipped);
+        assertEquals("PNR1,x", r.rows.get(0));
+    }
+
+    @Test
+    void unbalancedQuoteSkipsOnlyItsRow() throws IOException {
+        List<String> expected = new ArrayList<>();
+        StringBuilder text = new StringBuilder("PNR0,\"never closed,0\n");
+        for (int i = 1; text.length() < 2 << 20; i++) {
+            String row = i % 7 == 0 ? "PNR" + i + ",\"line one\nline two\"," + i : "PNR" + i + ",plain," + i;
+            expected.add(row);
+            text.append(row).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("broken.csv"), text);
+        CsvFileLoader.Result<String> r = CsvFileLoader.load(file, Lines::new, pool, CHUNK);
+        assertEquals(expected, r.rows);
+        assertEquals(1, r.stats.skipped);
+        assertEquals("0: unbalanced quote", r.stats.firstError);
+
+        // no later quote to stop at: the field is given up after MAX_RECORD_BYTES (here one chunk)
+        text.setLength(0);
+        text.append("PNR0,\"never closed,0\n");
+        for (int i = 1; text.length() < 2 << 20; i++) text.append("PNR").append(i).append(",plain,").append(i).append('\n');
+        r = CsvFileLoader.load(Files.writeString(file, text), Lines::new, pool, CHUNK);
+        assertEquals("PNR1,plain,1", r.rows.get(0));
+        assertEquals(text.toString().split("\n").length - 1, r.rows.size());
+        assertEquals(1, r.stats.skipped);
+
+        // nor in a small file that ends first
+        r = CsvFileLoader.load(Files.writeString(file, "PNR0,plain,0\nPNR1,\"never closed,1\nPNR2,plain,2\n"), Lines::new, pool, CHUNK);
+        assertEquals(List.of("PNR0,plain,0", "PNR2,plain,2"), r.rows);
+        assertEquals(1, r.stats.skipped);
+    }
+
+    @Test
+    void strayQuoteInAFieldDoesNotShiftLaterBoundaries() throws IOException {
+        List<String> expected = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 2 << 20; i++) {
+            String row = i == 100 ? "PNR" + i + ",6\" berth," + i
+                    : i % 7 == 0 ? "PNR" + i + ",\"line one\nline two\"," + i : "PNR" + i + ",plain," + i;
+            expected.add(row);
+            text.append(row).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("stray.csv"), text);
+        CsvFileLoader.Result<String> r = CsvFileLoader.load(file, Lines::new, pool, CHUNK);
+        assertEquals(expected, r.rows);
+        assertEquals(0, r.stats.skipped);
+    }
+
+    @Test
+    void lineLongerThanTwoChunksFails() throws IOException {
+        Path file = Files.writeString(dir.resolve("long.csv"), "PNR0," + "x".repeat(3 * (int) CHUNK) + "\nPNR1,plain,1\n");
+        IOException e = assertThrows(IOException.class, () -> CsvFileLoader.load(file, Lines::new, pool, CHUNK));
+        assertTrue(e.getMessage().contains("No record boundary"), e.getMessage());
+    }
+}
@@ -0,0 +1,33 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * FareQuoteCacheTest.java
+ * Quotes are computed once per key, and the least recently used one is evicted
+ */
+class FareQuoteCacheTest {
+    @Test
+    void quotesAreComputedOncePerKeyAndEvictedLeastRecentlyUsedFirst() {
+        FareQuoteCache cache = new FareQuoteCache(2);
+        AtomicInteger computed = new AtomicInteger();
+        assertEquals(100.0, cache.get("1001", "chennai", "OOTY", "Sleeper", () -> { computed.incrementAndGet(); return 100.0; }));
+        assertEquals(100.0, cache.get("1001", " CHENNAI", "ooty ", "Sleeper", () -> { computed.incrementAndGet(); return -1; }));
+        cache.get("1001", "CHENNAI", "NELLORE", "Sleeper", () -> { computed.incrementAndGet(); return 50.0; });
+        cache.get("1001", "CHENNAI", "OOTY", "Sleeper", () -> -1);   // now the most recent
+        cache.get("1001", "NELLORE", "OOTY", "Sleeper", () -> { computed.incrementAndGet(); return 70.0; });
+        assertEquals(3, computed.get());
+
+        // CHENNAI -> NELLORE was evicted, CHENNAI -> OOTY kept
+        assertEquals(100.0, cache.get("1001", "CHENNAI", "OOTY", "Sleeper", () -> -1));
+        assertEquals(51.0, cache.get("1001", "CHENNAI", "NELLORE", "Sleeper", () -> 51.0));
+        FareQuoteCache.Stats s = cache.stats();
+        assertEquals(2, s.size);
+        assertEquals(3, s.hits);
+        assertEquals(4, s.misses);
+        assertEquals(2, s.evictions);
+    }
+}
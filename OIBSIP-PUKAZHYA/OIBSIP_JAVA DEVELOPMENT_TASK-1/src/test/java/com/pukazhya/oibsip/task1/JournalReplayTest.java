@@ -0,0 +1,136 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * JournalReplayTest.java
+ * Concurrent bookings through the group-commit journal, replayed after a crash
+ *
+ * The first service is never closed, so nothing is checkpointed: the second
+ * one sees the month only through its journal, including when the crash tore
+ * the last row in half.
+ */
+class JournalReplayTest {
+    private static final String TRAIN = "22401", CLASS = "AC 3-tier";
+    private static final int THREADS = 8, PER_THREAD = 50, BERTHS = 5 * 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentBookingsAndCancellationsReplayFromTheJournal() throws Exception {
+        Path data = dir.resolve("reservations.csv");
+        LocalDate day = LocalDate.now().plusDays(20);
+        ReservationService crashed = new ReservationService(data);
+        ReservationService reopened = null;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            ConcurrentLinkedQueue<String> pnrs = new ConcurrentLinkedQueue<>();
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        Reservation r = crashed.book("Passenger " + thread + "-" + i, 40, TRAIN, "Rajdhani Express", CLASS,
+                                "CHENNAI", "DELHI", day, SeatInventory.Berth.ANY, JournalWriter.Durability.WAIT_FOR_WRITE);
+                        pnrs.add(r.getPnr());
+                    }
+                }));
+            }
+            for (Future<?> f : done) f.get();
+            int waitlisted = THREADS * PER_THREAD - BERTHS;
+            assertEquals(waitlisted, crashed.waitlistLength(TRAIN, day, CLASS));
+
+            // every confirmed booking holds its own berth
+            Set<String> seats = new HashSet<>();
+            List<String> booked = new ArrayList<>();
+            for (String pnr : pnrs) {
+                Reservation r = crashed.findByPNR(pnr);
+                if (!"Booked".equals(r.getStatus())) continue;
+                assertTrue(seats.add(r.getSeat()), "berth sold twice: " + r.getSeat());
+                booked.add(pnr);
+            }
+            assertEquals(BERTHS, booked.size());
+
+            for (String pnr : booked.subList(0, 10)) {
+                assertTrue(crashed.cancel(pnr, "changed plans", JournalWriter.Durability.WAIT_FOR_WRITE));
+            }
+            assertEquals(waitlisted - 10, crashed.waitlistLength(TRAIN, day, CLASS));
+
+            reopened = new ReservationService(data);
+            for (String pnr : pnrs) {
+                Reservation before = crashed.findByPNR(pnr), after = reopened.findByPNR(pnr);
+                assertNotNull(after, pnr);
+                assertEquals(before.getStatus(), after.getStatus(), pnr);
+                assertEquals(before.getSeat(), after.getSeat(), pnr);
+            }
+            ReservationStats stats = reopened.getStats();
+            assertEquals(BERTHS, stats.getStatusCount("Booked"));
+            assertEquals(10, stats.getStatusCount("Cancelled"));
+            assertEquals(waitlisted - 10, stats.getStatusCount("Waitlisted"));
+            assertEquals(waitlisted - 10, reopened.waitlistLength(TRAIN, day, CLASS));
+        } finally {
+            pool.shutdownNow();
+            if (reopened != null) reopened.close();
+            crashed.close();
+        }
+    }
+
+    @Test
+    void tornLastRowIsCutOffBeforeTheNextAppend() throws Exception {
+        Path data = dir.resolve("reservations.csv");
+        LocalDate day = LocalDate.now().plusDays(20);
+        List<String> pnrs = new ArrayList<>();
+        ReservationService crashed = new ReservationService(data), reopened = null, again = null;
+        try {
+            for (int i = 0; i < 3; i++) {
+                pnrs.add(crashed.book("Passenger " + i, 40, TRAIN, "Rajdhani Express", CLASS, "CHENNAI", "DELHI", day,
+                        SeatInventory.Berth.ANY, JournalWriter.Durability.WAIT_FOR_WRITE).getPnr());
+            }
+            // the crash came halfway through writing a fourth row
+            Path segment;
+            try (Stream<Path> s = Files.list(data.resolveSibling("reservations.csv.parts"))) {
+                segment = s.filter(p -> p.getFileName().toString().contains(".journal.")).max(Path::compareTo).orElseThrow();
+            }
+            String row = Files.readAllLines(segment, StandardCharsets.UTF_8).get(0);
+            Files.writeString(segment, row.substring(0, row.length() / 2), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            reopened = new ReservationService(data);
+            assertTrue(Files.readString(segment, StandardCharsets.UTF_8).endsWith("\n"));
+            pnrs.add(reopened.book("Passenger 3", 40, TRAIN, "Rajdhani Express", CLASS, "CHENNAI", "DELHI", day,
+                    SeatInventory.Berth.ANY, JournalWriter.Durability.WAIT_FOR_WRITE).getPnr());
+
+            again = new ReservationService(data);
+            for (int i = 0; i < pnrs.size(); i++) {
+                Reservation r = again.findByPNR(pnrs.get(i));
+                assertNotNull(r, pnrs.get(i));
+                assertEquals("Passenger " + i, r.getPassenger().getName());
+                assertEquals("Booked", r.getStatus());
+            }
+            assertEquals(4, again.getStats().getTotal());
+        } finally {
+            if (again != null) again.close();
+            if (reopened != null) reopened.close();
+            crashed.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * LatencyHistogramTest.java
+ * Bucket bounds and percentiles of the log-bucketed latency histogram
+ */
+class LatencyHistogramTest {
+    @Test
+    void everyValueFallsInABucketThatHoldsIt() {
+        for (long v = 0; v < 1L << 44; v = v * 3 / 2 + 1) {
+            int b = LatencyHistogram.bucketOf(v);
+            assertTrue(LatencyHistogram.highestIn(b) >= v, "value " + v);
+            if (b > 0) assertTrue(LatencyHistogram.highestIn(b - 1) < v, "value " + v);
+            // a bucket is never wider than 1/32 of its values
+            long low = b > 0 ? LatencyHistogram.highestIn(b - 1) + 1 : 0;
+            assertTrue(LatencyHistogram.highestIn(b) - low <= Math.max(0, low / 32), "value " + v);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long us = 1; us <= 1000; us++) h.record(us * 1000);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(1000, s.count);
+        assertEquals(1_000_000, s.maxNanos);
+        assertEquals(500_500.0, s.meanNanos(), 1e-9);
+        assertEquals(500_000, s.percentile(50), 500_000 / 32.0);
+        assertEquals(990_000, s.percentile(99), 990_000 / 32.0);
+        assertEquals(1_000_000, s.percentile(100));
+
+        h.reset();
+        assertEquals(0, h.snapshot().count);
+        assertEquals(0, h.snapshot().percentile(99));
+    }
+}
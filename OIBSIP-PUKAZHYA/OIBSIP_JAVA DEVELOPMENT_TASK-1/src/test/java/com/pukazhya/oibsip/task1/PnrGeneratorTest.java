@@ -0,0 +1,63 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * PnrGeneratorTest.java
+ * PNRs stay unique across threads and after a restart that observed earlier ones
+ */
+class PnrGeneratorTest {
+    @Test
+    void concurrentCallersNeverGetTheSamePnr() throws Exception {
+        PnrGenerator gen = new PnrGenerator(3);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        String pnr = gen.next();
+                        assertEquals(14, pnr.length());
+                        assertTrue(pnr.startsWith("PZD"), pnr);
+                        assertTrue(seen.add(pnr), pnr);
+                    }
+                }));
+            }
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(200_000, seen.size());
+    }
+
+    @Test
+    void observedPnrFromAheadOfTheClockIsNotReissued() {
+        // counter 2 * 31^10, years ahead of the current time
+        String issued = "PZAC" + "A".repeat(10);
+        PnrGenerator gen = new PnrGenerator(0);
+        gen.observe(issued);
+        assertEquals("PZAC" + "A".repeat(9) + "B", gen.next());
+
+        PnrGenerator other = new PnrGenerator(1);
+        other.observe(issued);
+        assertNotEquals("PZBC" + "A".repeat(9) + "B", other.next());
+    }
+
+    @Test
+    void nodeOutsideTheAlphabetIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PnrGenerator(PnrGenerator.MAX_NODE + 1));
+    }
+}
@@ -0,0 +1,58 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ReservationArchiveTest.java
+ * Completed journeys leave the live set but stay findable by PNR, also after a restart
+ */
+class ReservationArchiveTest {
+    private static final String TRAIN = "22401", NAME = "Rajdhani Express", CLASS = "Sleeper";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pastJourneysAreArchivedAndStillFound() throws Exception {
+        Path data = dir.resolve("reservations.csv");
+        LocalDate past = LocalDate.now().minusDays(10), future = LocalDate.now().plusDays(10);
+        List<String> old = new ArrayList<>(), live = new ArrayList<>();
+        ReservationService service = new ReservationService(data);
+        try {
+            for (int i = 0; i < 150; i++) {
+                old.add(service.book("Old " + i, 30, TRAIN, NAME, CLASS, "CHENNAI", "DELHI", past).getPnr());
+                live.add(service.book("Live " + i, 30, TRAIN, NAME, CLASS, "CHENNAI", "DELHI", future).getPnr());
+            }
+            assertTrue(service.cancel(old.get(3), "missed the train"));
+
+            assertEquals(150, service.archiveCompleted());
+            assertEquals(0, service.archiveCompleted());
+            assertTrue(service.manifest(TRAIN, past, CLASS).isEmpty());
+            assertEquals(150, service.manifest(TRAIN, future, CLASS).size());
+            assertEquals(300, service.getStats().getTotal());
+            assertEquals("Cancelled", service.findByPNR(old.get(3)).getStatus());
+            for (String pnr : old) assertNotNull(service.findByPNR(pnr), pnr);
+        } finally {
+            service.close();
+        }
+
+        service = new ReservationService(data);
+        try {
+            for (String pnr : old) assertEquals(past, service.findByPNR(pnr).getTravelDate(), pnr);
+            for (String pnr : live) assertEquals(future, service.findByPNR(pnr).getTravelDate(), pnr);
+            assertEquals(300, service.getStats().getTotal());
+            assertEquals(1, service.getStats().getStatusCount("Cancelled"));
+        } finally {
+            service.close();
+        }
+    }
+}
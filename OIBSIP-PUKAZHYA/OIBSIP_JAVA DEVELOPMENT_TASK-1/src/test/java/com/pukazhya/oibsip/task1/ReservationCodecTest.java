@@ -0,0 +1,49 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ReservationCodecTest.java
+ * CSV row round trip, quoting, and rejection of malformed rows
+ */
+class ReservationCodecTest {
+    private final ReservationCodec codec = new ReservationCodec();
+
+    @Test
+    void encodedRowDecodesToTheSameReservation() {
+        Reservation r = new Reservation("PNR12345", new Passenger("Raman, \"Ravi\"", 42), "22401", "Rajdhani Express",
+                "AC 2-tier", "CHENNAI", "NEW DELHI", LocalDateTime.of(2030, 2, 28, 23, 59, 7), LocalDate.of(2030, 3, 1),
+                1234.5, "Cancelled", "plans\nchanged");
+        String row = codec.encode(r);
+        Reservation back = codec.decode(row);
+        assertNotNull(back, codec.error());
+        assertEquals(r.getPnr(), back.getPnr());
+        assertEquals(r.getPassenger().getName(), back.getPassenger().getName());
+        assertEquals(42, back.getPassenger().getAge());
+        assertEquals(r.getBookingTime(), back.getBookingTime());
+        assertEquals(r.getTravelDate(), back.getTravelDate());
+        assertEquals(1234.5, back.getFare());
+        assertEquals("plans\nchanged", back.getCancelReason());
+        assertEquals(row, codec.encode(back));
+    }
+
+    @Test
+    void malformedRowsReturnNullWithAReason() {
+        String good = codec.encode(new Reservation("PNR1", new Passenger("A", 30), "22401", "Rajdhani Express",
+                "Sleeper", "CHENNAI", "DELHI", LocalDateTime.of(2030, 1, 1, 10, 0), LocalDate.of(2030, 1, 2),
+                500.0, "Booked", ""));
+        assertNotNull(codec.decode(good));
+        assertNull(codec.decode(good.replace("2030-01-02", "2030-02-30")));
+        assertNotNull(codec.error());
+        assertNull(codec.decode(good.replace(",30,", ",thirty,")));
+        assertNotNull(codec.error());
+        assertNull(codec.decode("PNR1,A"));
+        assertNotNull(codec.error());
+    }
+}
@@ -0,0 +1,107 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ReservationQueryTest.java
+ * Cursor paging matches a full scan, and the planner picks the index that fits the filter
+ * in each month a page reads
+ */
+class ReservationQueryTest {
+    private static final String[][] JOURNEYS = {
+        {"22401", "Rajdhani Express", "CHENNAI", "DELHI"},
+        {"12049", "Shatabdi Deluxe", "CHENNAI", "MYSORE"},
+        {"22411", "Duronto", "MUMBAI", "HYDERABAD"},
+        {"12345", "InterCity Express", "COIMBATORE", "CHENNAI"},
+    };
+
+    @TempDir
+    Path dir;
+
+    private ReservationService service;
+    private final LocalDate day = LocalDate.now().plusDays(15);
+    private final List<Reservation> booked = new ArrayList<>();
+
+    @BeforeEach
+    void open() throws Exception {
+        service = new ReservationService(dir.resolve("reservations.csv"));
+        for (int i = 0; i < 200; i++) {
+            String[] j = JOURNEYS[i % JOURNEYS.length];
+            String name = i % 50 == 0 ? "Zubeida Quasim " + i : "Passenger " + i;
+            booked.add(service.book(name, 30, j[0], j[1], i % 3 == 0 ? "AC 2-tier" : "Sleeper", j[2], j[3], day));
+        }
+        for (int i = 0; i < booked.size(); i += 7) assertTrue(service.cancel(booked.get(i).getPnr(), "changed plans"));
+    }
+
+    @AfterEach
+    void close() {
+        service.close();
+    }
+
+    @Test
+    void pagesWalkEveryMatchInBookingOrder() {
+        ReservationQuery q = ReservationQuery.all().status("Booked").classType("Sleeper");
+        List<String> expected = new ArrayList<>();
+        for (Reservation r : booked) {
+            Reservation now = service.findByPNR(r.getPnr());
+            if ("Booked".equals(now.getStatus()) && "Sleeper".equals(now.getClassType())) expected.add(r.getPnr());
+        }
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            ReservationQuery.Page page = service.query(q, cursor, 7);
+            assertTrue(page.rows.size() <= 7);
+            for (Reservation r : page.rows) seen.add(r.getPnr());
+            cursor = page.next;
+        } while (cursor != null);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void plannerUsesTheIndexThatFitsTheFilter() {
+        ReservationQuery.Page byTrain = service.query(ReservationQuery.all().train("22411"), null, 100);
+        assertEquals(ReservationQuery.Access.DEPARTURE_INDEX, byTrain.access);
+        assertEquals(50, byTrain.rows.size());
+        assertNull(byTrain.next);
+
+        ReservationQuery.Page byName = service.query(ReservationQuery.all().name("zubeida"), null, 100);
+        assertEquals(ReservationQuery.Access.NAME_INDEX, byName.access);
+        assertEquals(4, byName.rows.size());
+
+        assertEquals(ReservationQuery.Access.SCAN, service.query(ReservationQuery.all(), null, 10).access);
+    }
+
+    @Test
+    void pageReportsThePathOfEveryMonthItRead() throws Exception {
+        // one row next month: scanning it is as cheap as its index
+        LocalDate later = day.plusMonths(1);
+        service.book("Passenger 200", 30, "22411", "Duronto", "Sleeper", "MUMBAI", "HYDERABAD", later);
+
+        ReservationQuery.Page page = service.query(ReservationQuery.all().train("22411"), null, 100);
+        assertEquals(51, page.rows.size());
+        assertEquals(List.of(YearMonth.from(day), YearMonth.from(later)), new ArrayList<>(page.paths.keySet()));
+        assertEquals(ReservationQuery.Access.DEPARTURE_INDEX, page.paths.get(YearMonth.from(day)));
+        assertEquals(ReservationQuery.Access.SCAN, page.paths.get(YearMonth.from(later)));
+        assertEquals(ReservationQuery.Access.DEPARTURE_INDEX, page.access);
+    }
+
+    @Test
+    void cursorOfAnotherQueryIsRejected() {
+        String cursor = service.query(ReservationQuery.all().train("22401"), null, 5).next;
+        assertThrows(IllegalArgumentException.class, () -> service.query(ReservationQuery.all().train("12049"), cursor, 5));
+    }
+}
@@ -0,0 +1,106 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ReservationServerTest.java
+ * Book, look up and cancel over HTTP; client errors are answered with 400 or 409,
+ * and a change is answered only once it is in the journal
+ */
+class ReservationServerTest {
+    @TempDir
+    Path dir;
+
+    private ReservationService service;
+    private ReservationServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws Exception {
+        service = new ReservationService(dir.resolve("reservations.csv"));
+        server = new ReservationServer(service, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        service.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path));
+        b.method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json));
+        return client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String booking(String age) {
+        return "{\"name\":\"Anita Raman\",\"age\":\"" + age + "\",\"trainNo\":\"22401\",\"classType\":\"AC 2-tier\","
+                + "\"from\":\"CHENNAI\",\"to\":\"DELHI\",\"travelDate\":\"" + LocalDate.now().plusDays(10) + "\"}";
+    }
+
+    @Test
+    void bookLookUpAndCancel() throws Exception {
+        HttpResponse<String> booked = send("POST", "/api/bookings", booking("34"));
+        assertEquals(201, booked.statusCode(), booked.body());
+        String pnr = ReservationServer.Json.parseObject(booked.body()).get("pnr");
+
+        HttpResponse<String> found = send("GET", "/api/bookings/" + pnr, null);
+        assertEquals(200, found.statusCode());
+        Map<String,String> row = ReservationServer.Json.parseObject(found.body());
+        assertEquals("Booked", row.get("status"));
+        assertEquals("Anita Raman", row.get("name"));
+
+        HttpResponse<String> cancelled = send("POST", "/api/bookings/" + pnr + "/cancel", "{\"reason\":\"plans changed\"}");
+        assertEquals(200, cancelled.statusCode(), cancelled.body());
+        assertEquals("Cancelled", ReservationServer.Json.parseObject(cancelled.body()).get("status"));
+        assertEquals(409, send("POST", "/api/bookings/" + pnr + "/cancel", "{\"reason\":\"plans changed\"}").statusCode());
+
+        HttpResponse<String> stats = send("GET", "/api/stats", null);
+        assertEquals(200, stats.statusCode());
+        assertTrue(stats.body().startsWith("{\"total\":1,"), stats.body());
+    }
+
+    @Test
+    void clientErrorsAreRejected() throws Exception {
+        assertEquals(400, send("POST", "/api/bookings", booking("old")).statusCode());
+        assertEquals(400, send("POST", "/api/bookings", "{\"name\":").statusCode());
+        assertEquals(404, send("GET", "/api/bookings/NOSUCHPNR", null).statusCode());
+        assertEquals(405, send("DELETE", "/api/bookings", null).statusCode());
+    }
+
+    @Test
+    void bookingIsInTheJournalWhenAnswered() throws Exception {
+        HttpResponse<String> booked = send("POST", "/api/bookings", booking("34"));
+        assertEquals(201, booked.statusCode(), booked.body());
+        String pnr = ReservationServer.Json.parseObject(booked.body()).get("pnr");
+        StringBuilder journal = new StringBuilder();
+        try (Stream<Path> s = Files.list(dir.resolve("reservations.csv.parts"))) {
+            for (Path p : (Iterable<Path>) s.filter(p -> p.getFileName().toString().contains(".journal."))::iterator) {
+                journal.append(Files.readString(p, StandardCharsets.UTF_8));
+            }
+        }
+        assertTrue(journal.toString().contains(pnr), journal.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> new ReservationServer(service,
+                new InetSocketAddress("127.0.0.1", 0), JournalWriter.Durability.FIRE_AND_FORGET));
+    }
+}
@@ -0,0 +1,223 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ReservationServiceTest.java
+ * Batch booking, counters, manifests, month partitions and waitlist promotion on "AC 1st" of 22401 (48 berths)
+ */
+class ReservationServiceTest {
+    private static final String TRAIN = "22401", NAME = "Rajdhani Express", CLASS = "AC 1st";
+    private static final int BERTHS = 48;
+
+    @TempDir
+    Path dir;
+
+    private ReservationService service;
+    private final LocalDate day = LocalDate.now().plusDays(30);
+
+    @BeforeEach
+    void open() throws Exception {
+        service = new ReservationService(dir.resolve("reservations.csv"));
+    }
+
+    @AfterEach
+    void close() {
+        service.close();
+    }
+
+    private BookingRequest request(String name, int age) {
+        return new BookingRequest(name, age, TRAIN, NAME, CLASS, "CHENNAI", "NAGPUR", day, SeatInventory.Berth.ANY);
+    }
+
+    private Reservation book(String from, String to) {
+        Reservation r = service.book("Passenger", 30, TRAIN, NAME, CLASS, from, to, day);
+        assertNotNull(r);
+        return r;
+    }
+
+    private String status(Reservation r) {
+        return service.findByPNR(r.getPnr()).getStatus();
+    }
+
+    @Test
+    void batchBooksEveryPassengerOnItsOwnBerth() {
+        List<BookingRequest> batch = new ArrayList<>();
+        for (int i = 0; i < BERTHS; i++) batch.add(request("Passenger " + i, 30));
+        Set<String> seats = new HashSet<>();
+        for (BookingResult r : service.bookAll(batch, true)) {
+            assertTrue(r.isBooked(), r.getError());
+            assertTrue(seats.add(r.getReservation().getSeat()));
+            assertNotNull(service.findByPNR(r.getReservation().getPnr()));
+        }
+    }
+
+    @Test
+    void allOrNothingBatchWithABadItemStoresNothing() {
+        List<BookingRequest> batch = new ArrayList<>();
+        for (int i = 0; i < BERTHS; i++) batch.add(request("Passenger " + i, i == 5 ? 0 : 30));
+        for (BookingResult r : service.bookAll(batch, true)) assertFalse(r.isBooked());
+        assertTrue(service.allReservations().isEmpty());
+
+        // the berths taken while checking the batch were given back
+        batch.set(5, request("Passenger 5", 30));
+        for (BookingResult r : service.bookAll(batch, true)) assertTrue(r.isBooked(), r.getError());
+    }
+
+    @Test
+    void partialBatchBooksTheValidItems() {
+        List<BookingResult> results = service.bookAll(List.of(request("Passenger", 30), request("X", 30),
+                request("Passenger", 30)), false);
+        assertTrue(results.get(0).isBooked());
+        assertEquals("Invalid passenger name", results.get(1).getError());
+        assertTrue(results.get(2).isBooked());
+        assertEquals(2, service.allReservations().size());
+    }
+
+    @Test
+    void countersFollowBookingsAndCancellations() {
+        AtomicReference<ReservationStats> seen = new AtomicReference<>();
+        service.addChangeListener(seen::set);
+        List<BookingRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) batch.add(request("Passenger " + i, 30));
+        List<BookingResult> results = service.bookAll(batch, true);
+        assertTrue(service.cancel(results.get(0).getReservation().getPnr(), "changed plans"));
+
+        ReservationStats stats = service.getStats();
+        assertEquals(5, stats.getTotal());
+        assertEquals(4, stats.getStatusCount("Booked"));
+        assertEquals(1, stats.getStatusCount("cancelled"));
+        assertEquals(5, stats.getClassCount(CLASS));
+        // the listener saw the state after the last change
+        assertEquals(5, seen.get().getTotal());
+        assertEquals(1, seen.get().getStatusCount("Cancelled"));
+    }
+
+    private static List<String> pnrs(List<Reservation> rows) {
+        return rows.stream().map(Reservation::getPnr).collect(Collectors.toList());
+    }
+
+    @Test
+    void manifestListsOneDepartureInBookingOrder() throws Exception {
+        List<String> expected = new ArrayList<>();
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Reservation r = service.book("Passenger " + i, 30, TRAIN, NAME, CLASS, "CHENNAI", "DELHI", day);
+            expected.add(r.getPnr());
+            all.add(r.getPnr());
+            // noise on other departures
+            service.book("Other " + i, 30, TRAIN, NAME, "Sleeper", "CHENNAI", "DELHI", day);
+            service.book("Other " + i, 30, TRAIN, NAME, CLASS, "CHENNAI", "DELHI", day.plusDays(1));
+            service.book("Other " + i, 30, "12049", "Shatabdi Deluxe", CLASS, "CHENNAI", "DELHI", day);
+        }
+        assertTrue(service.cancel(expected.remove(2), "changed plans"));
+
+        assertEquals(expected, pnrs(service.manifest(TRAIN, day, CLASS)));
+        assertEquals(all, pnrs(service.manifest(TRAIN, day, day, CLASS, true)));
+        assertEquals(6 + 5 + 6, service.manifest(TRAIN, day, day.plusDays(1), null, false).size());
+
+        // the index comes back from the snapshot on restart
+        service.close();
+        service = new ReservationService(dir.resolve("reservations.csv"));
+        assertEquals(expected, pnrs(service.manifest(TRAIN, day, CLASS)));
+    }
+
+    @Test
+    void eachTravelMonthIsStoredInItsOwnPartition() throws Exception {
+        LocalDate nextMonth = day.plusMonths(1);
+        String first = service.book("Passenger", 30, TRAIN, NAME, CLASS, "CHENNAI", "DELHI", day).getPnr();
+        String second = service.book("Passenger", 30, TRAIN, NAME, CLASS, "CHENNAI", "DELHI", nextMonth).getPnr();
+        service.close();
+
+        Path parts = dir.resolve("reservations.csv.parts");
+        assertTrue(Files.exists(parts.resolve(YearMonth.from(day) + ".csv")));
+        assertTrue(Files.exists(parts.resolve(YearMonth.from(nextMonth) + ".csv")));
+
+        service = new ReservationService(dir.resolve("reservations.csv"));
+        assertEquals(day, service.findByPNR(first).getTravelDate());
+        assertEquals(nextMonth, service.findByPNR(second).getTravelDate());
+        assertEquals(2, service.getStats().getTotal());
+        assertEquals(List.of(second), pnrs(service.manifest(TRAIN, nextMonth, CLASS)));
+    }
+
+    @Test
+    void cancellingWaitlistedBookingInLowerCaseLeavesTheQueue() {
+        List<Reservation> booked = new ArrayList<>();
+        for (int i = 0; i < BERTHS; i++) booked.add(book("CHENNAI", "NAGPUR"));
+        Reservation waiting = book("CHENNAI", "NAGPUR");
+        assertEquals("Waitlisted", waiting.getStatus());
+
+        assertTrue(service.cancel(waiting.getPnr().toLowerCase(Locale.ROOT), "changed plans"));
+        assertEquals(0, service.waitlistLength(TRAIN, day, CLASS));
+        assertTrue(service.cancel(booked.get(0).getPnr(), "changed plans"));
+
+        assertEquals("Cancelled", status(waiting));
+        ReservationStats stats = service.getStats();
+        assertEquals(BERTHS - 1, stats.getStatusCount("Booked"));
+        assertEquals(2, stats.getStatusCount("Cancelled"));
+        assertEquals(0, stats.getStatusCount("Waitlisted"));
+    }
+
+    @Test
+    void cancellationPromotesHeadOfQueue() throws Exception {
+        List<Reservation> booked = new ArrayList<>();
+        for (int i = 0; i < BERTHS; i++) booked.add(book("CHENNAI", "NAGPUR"));
+        Reservation first = book("CHENNAI", "NAGPUR");
+        Reservation second = book("CHENNAI", "NAGPUR");
+        assertEquals(1, service.waitlistPosition(first.getPnr()));
+        assertEquals(2, service.waitlistPosition(second.getPnr()));
+
+        Reservation freed = booked.get(7);
+        assertTrue(service.cancel(freed.getPnr(), "changed plans"));
+
+        Reservation promoted = service.findByPNR(first.getPnr());
+        assertEquals("Booked", promoted.getStatus());
+        assertEquals(freed.getSeat(), promoted.getSeat());
+        assertEquals("Waitlisted", status(second));
+        assertEquals(1, service.waitlistPosition(second.getPnr()));
+
+        // the queue is rebuilt from the stored rows
+        service.close();
+        service = new ReservationService(dir.resolve("reservations.csv"));
+        assertEquals(1, service.waitlistLength(TRAIN, day, CLASS));
+        assertEquals(1, service.waitlistPosition(second.getPnr()));
+    }
+
+    @Test
+    void promotionReachesTicketsBehindManyThatDoNotFit() {
+        List<Reservation> firstLegs = new ArrayList<>();
+        for (int i = 0; i < BERTHS; i++) firstLegs.add(book("CHENNAI", "NAGPUR"));
+        for (int i = 0; i < BERTHS; i++) assertEquals("Booked", book("NAGPUR", "DELHI").getStatus());
+        // the whole run never fits a berth freed between CHENNAI and NAGPUR
+        for (int i = 0; i < 40; i++) assertEquals("Waitlisted", book("CHENNAI", "DELHI").getStatus());
+        Reservation fits = book("CHENNAI", "VIJAYAWADA");
+        assertEquals("Waitlisted", fits.getStatus());
+
+        Reservation freed = firstLegs.get(0);
+        assertTrue(service.cancel(freed.getPnr(), "changed plans"));
+
+        Reservation promoted = service.findByPNR(fits.getPnr());
+        assertEquals("Booked", promoted.getStatus());
+        assertEquals(freed.getSeat(), promoted.getSeat());
+        assertEquals(40, service.waitlistLength(TRAIN, day, CLASS));
+    }
+}
@@ -0,0 +1,164 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ReservationStoreTest.java
+ * Rows read back from the columns as written, found by PNR, cancelled in place,
+ * published views that later writes do not change, and rows rejected by a full
+ * column dictionary that leave the store and its indexes untouched; cancel
+ * reasons past the dictionary's limit are stored raw
+ */
+class ReservationStoreTest {
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 15);
+
+    @TempDir
+    Path dir;
+
+    private static Reservation row(int i, String from, String to) {
+        return new Reservation(String.format("PNR%08d", i), new Passenger("Passenger " + i, 30), "99999", "Test Express",
+                "Sleeper", from, to, LocalDateTime.of(2029, 12, 1, 10, 0), DAY, 500.0, "Booked", "");
+    }
+
+    // Add rows with two new stations each until the station dictionary is full; returns the rows stored
+    private static int fill(Consumer<Reservation> add) {
+        int i = 0;
+        while (true) {
+            try {
+                add.accept(row(i, "FROM-" + i, "TO-" + i));
+            } catch (IllegalStateException full) {
+                return i;
+            }
+            i++;
+        }
+    }
+
+    @Test
+    void rowsReadBackAsWritten() {
+        ReservationStore store = new ReservationStore();
+        for (int i = 0; i < 5000; i++) assertEquals(i, store.add(row(i, "CHENNAI", i % 2 == 0 ? "DELHI" : "MUMBAI")));
+        assertEquals(5000, store.size());
+
+        Reservation r = store.get(4321);
+        assertEquals("PNR00004321", r.getPnr());
+        assertEquals("Passenger 4321", r.getPassenger().getName());
+        assertEquals(30, r.getPassenger().getAge());
+        assertEquals("MUMBAI", r.getTo());
+        assertEquals(LocalDateTime.of(2029, 12, 1, 10, 0), r.getBookingTime());
+        assertEquals(DAY, r.getTravelDate());
+        assertEquals(500.0, r.getFare());
+    }
+
+    @Test
+    void pnrLookupIgnoresCase() {
+        ReservationStore store = new ReservationStore();
+        for (int i = 0; i < 100; i++) store.add(row(i, "CHENNAI", "DELHI"));
+        assertEquals(42, store.indexOf("pnr00000042"));
+        assertEquals(-1, store.indexOf("PNR00000100"));
+    }
+
+    @Test
+    void cancellationChangesOnlyTheRow() {
+        ReservationStore store = new ReservationStore();
+        for (int i = 0; i < 3; i++) store.add(row(i, "CHENNAI", "DELHI"));
+        store.setStatus(1, "Cancelled", "plans changed");
+        assertTrue(store.isCancelled(1));
+        assertEquals("plans changed", store.get(1).getCancelReason());
+        assertEquals("Booked", store.get(0).getStatus());
+        assertEquals("Booked", store.get(2).getStatus());
+    }
+
+    @Test
+    void publishedViewIsNotChangedByLaterWrites() {
+        ReservationStore store = new ReservationStore();
+        for (int i = 0; i < 5000; i++) store.add(row(i, "CHENNAI", "DELHI"));
+        ReservationStore.View before = store.publish();
+        assertSame(before, store.publish());
+
+        store.setStatus(10, "Cancelled", "plans changed");
+        for (int i = 5000; i < 20_000; i++) store.add(row(i, "CHENNAI", "DELHI"));
+        assertEquals(5000, before.size());
+        assertEquals("Booked", before.status(10));
+        assertEquals("", before.get(10).getCancelReason());
+
+        ReservationStore.View after = store.publish();
+        assertEquals(20_000, after.size());
+        assertEquals("Cancelled", after.status(10));
+        assertEquals("PNR00019999", after.pnr(19_999));
+    }
+
+    @Test
+    void fullDictionaryLeavesNoPhantomRow() {
+        ReservationStore store = new ReservationStore();
+        int stored = fill(store::add);
+        assertEquals(stored, store.size());
+        assertEquals(-1, store.indexOf(String.format("PNR%08d", stored)));
+
+        // known values still go in, on the next row number
+        int row = store.add(row(stored + 1, "FROM-0", "TO-0"));
+        assertEquals(stored, row);
+        assertEquals(row, store.indexOf(String.format("PNR%08d", stored + 1)));
+        assertEquals("FROM-0", store.get(row).getFrom());
+        assertEquals("Passenger " + (stored + 1), store.get(row).getPassenger().getName());
+    }
+
+    @Test
+    void rejectedRowLeavesPartitionIndexesAligned() {
+        ReservationPartition p = new ReservationPartition(dir.resolve("reservations.csv"), YearMonth.from(DAY),
+                Runnable::run, e -> { }, new ReservationMetrics());
+        int stored = fill(p::add);
+        assertEquals(stored, p.store.size());
+        assertEquals(stored, p.names.size());
+        assertEquals(stored, p.departures.size());
+
+        p.add(row(stored + 1, "FROM-1", "TO-1"));
+        assertEquals(stored + 1, p.store.size());
+        assertEquals(stored + 1, p.names.size());
+        assertEquals(stored + 1, p.departures.size());
+    }
+
+    @Test
+    void oversizedValuesAreRejectedWithoutChange() {
+        ReservationStore store = new ReservationStore();
+        store.add(row(0, "CHENNAI", "DELHI"));
+        Reservation longPnr = new Reservation("P".repeat(300), new Passenger("Name", 30), "99999", "Test Express",
+                "Sleeper", "CHENNAI", "DELHI", LocalDateTime.of(2029, 12, 1, 10, 0), DAY, 500.0, "Booked", "");
+        assertThrows(IllegalArgumentException.class, () -> store.add(longPnr));
+        assertEquals(1, store.size());
+        assertEquals(1, store.add(row(1, "CHENNAI", "DELHI")));
+    }
+
+    @Test
+    void reasonsPastTheDictionaryAreStoredRaw() throws IOException {
+        ReservationStore store = new ReservationStore();
+        for (int i = 0; i < 3; i++) store.add(row(i, "CHENNAI", "DELHI"));
+        for (int i = 0; i < 70_000; i++) store.setStatus(1, "Cancelled", "reason " + i);
+        ReservationStore.View view = store.publish();
+        store.setStatus(2, "Cancelled", "plans changed, \"really\"");
+        assertEquals("reason 69999", store.get(1).getCancelReason());
+        assertEquals("reason 69999", view.get(1).getCancelReason());
+        assertEquals("", view.get(2).getCancelReason());
+        assertEquals("plans changed, \"really\"", store.get(2).getCancelReason());
+
+        Path base = Files.writeString(dir.resolve("base.csv"), "x\n"), snap = BinarySnapshot.pathFor(base);
+        BinarySnapshot.write(snap, base, store.publish()::writeTo);
+        ReservationStore copy = new ReservationStore();
+        assertTrue(BinarySnapshot.read(snap, base, copy::readFrom));
+        assertEquals("reason 69999", copy.get(1).getCancelReason());
+        assertEquals("plans changed, \"really\"", copy.get(2).getCancelReason());
+        assertEquals("", copy.get(0).getCancelReason());
+    }
+}
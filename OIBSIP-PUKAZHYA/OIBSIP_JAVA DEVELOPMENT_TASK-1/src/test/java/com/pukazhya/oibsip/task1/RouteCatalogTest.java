@@ -0,0 +1,51 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * RouteCatalogTest.java
+ * Reading the route file, stop distances, and errors reported with file:line
+ */
+class RouteCatalogTest {
+    private static RouteCatalog read(String text) throws IOException {
+        return RouteCatalog.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), "test.csv");
+    }
+
+    @Test
+    void distancesComeFromTheStopKilometres() throws IOException {
+        RouteCatalog c = read("# comment\n"
+                + "1001,Coast Mail,chennai,0\n"
+                + "1001,Coast Mail,NELLORE,175\n"
+                + "\n"
+                + "1001,Coast Mail,VIJAYAWADA,431\n"
+                + "2002,Hill Express,MYSURU,0\n"
+                + "2002,Hill Express,OOTY,125\n");
+        TrainRoute r = c.route("1001");
+        assertEquals(List.of("CHENNAI", "NELLORE", "VIJAYAWADA"), r.getStops());
+        assertEquals(256, r.distanceKm("nellore", "VIJAYAWADA"));
+        assertEquals(-1, r.distanceKm("VIJAYAWADA", "CHENNAI"));
+        assertEquals(0b011, r.segments("CHENNAI", "VIJAYAWADA"));
+        assertEquals(List.of("CHENNAI", "MYSURU", "NELLORE", "OOTY", "VIJAYAWADA"), c.stations());
+    }
+
+    @Test
+    void badLineNamesTheFileAndLine() {
+        IOException e = assertThrows(IOException.class, () -> read("1001,Coast Mail,CHENNAI,0\n1001,Coast Mail,NELLORE,far\n"));
+        assertTrue(e.getMessage().startsWith("test.csv:2:"), e.getMessage());
+    }
+
+    @Test
+    void bundledCatalogueLoads() throws IOException {
+        RouteCatalog c = RouteCatalog.load(Path.of("no-such-dir", "reservations.csv"));
+        assertTrue(c.route("22401").serves("CHENNAI", "DELHI"));
+    }
+}
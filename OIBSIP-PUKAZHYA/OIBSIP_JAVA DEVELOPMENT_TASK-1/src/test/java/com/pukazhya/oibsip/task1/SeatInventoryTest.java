@@ -0,0 +1,76 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SeatInventoryTest.java
+ * Concurrent allocation never sells a berth twice, and berths are resold per route segment
+ */
+class SeatInventoryTest {
+    private static final String TRAIN = "22401", CLASS = "AC 3-tier";
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 15);
+    // a three-leg route: legs 0, 1 and 2
+    private static final long WHOLE = 0b111, FIRST = 0b001, REST = 0b110;
+
+    @Test
+    void concurrentAllocationSellsEveryBerthOnce() throws Exception {
+        SeatInventory inventory = new SeatInventory();
+        int berths = SeatInventory.layoutFor(CLASS).capacity();
+        ConcurrentLinkedQueue<String> sold = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < berths; i++) {
+                        String seat = inventory.allocate(TRAIN, DAY, CLASS, WHOLE, SeatInventory.Berth.LOWER);
+                        if (seat != null) sold.add(seat);
+                    }
+                }));
+            }
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        Set<String> distinct = new HashSet<>(sold);
+        assertEquals(berths, sold.size());
+        assertEquals(berths, distinct.size());
+        assertEquals(0, inventory.available(TRAIN, DAY, CLASS, WHOLE));
+        assertNull(inventory.allocate(TRAIN, DAY, CLASS, WHOLE, SeatInventory.Berth.ANY));
+    }
+
+    @Test
+    void releasedBerthCanBeSoldAgain() {
+        SeatInventory inventory = new SeatInventory();
+        String seat = inventory.allocate(TRAIN, DAY, CLASS, WHOLE, SeatInventory.Berth.ANY);
+        assertFalse(inventory.claim(TRAIN, DAY, CLASS, WHOLE, seat));
+        assertTrue(inventory.release(TRAIN, DAY, CLASS, WHOLE, seat));
+        assertFalse(inventory.release(TRAIN, DAY, CLASS, WHOLE, seat));
+        assertTrue(inventory.claim(TRAIN, DAY, CLASS, WHOLE, seat));
+    }
+
+    @Test
+    void berthFreeOnTheRemainingLegsIsResold() {
+        SeatInventory inventory = new SeatInventory();
+        String first = inventory.allocate(TRAIN, DAY, CLASS, FIRST, SeatInventory.Berth.ANY);
+        assertEquals(first, inventory.allocate(TRAIN, DAY, CLASS, REST, SeatInventory.Berth.ANY));
+        assertFalse(inventory.claim(TRAIN, DAY, CLASS, WHOLE, first));
+        assertTrue(inventory.release(TRAIN, DAY, CLASS, FIRST, first));
+        assertFalse(inventory.claim(TRAIN, DAY, CLASS, WHOLE, first));
+        assertTrue(inventory.claim(TRAIN, DAY, CLASS, FIRST, first));
+    }
+}
@@ -0,0 +1,64 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TicketExporterTest.java
+ * Tickets rendered in parallel chunks come out whole and in input order
+ */
+class TicketExporterTest {
+    @TempDir
+    Path dir;
+
+    // More than two render chunks
+    private static List<Reservation> tickets() {
+        List<Reservation> out = new ArrayList<>();
+        for (int i = 0; i < 700; i++) {
+            out.add(new Reservation(String.format("PNR%05d", i), new Passenger("Passenger " + i, 20 + i % 50), "22401",
+                    "Rajdhani Express", "AC 2-tier", "CHENNAI", "DELHI", LocalDateTime.of(2030, 1, 1, 9, 30),
+                    LocalDate.of(2030, 2, 1), 1234.5 + i, "Booked", "", "A1-" + (i % 46 + 1)));
+        }
+        return out;
+    }
+
+    @Test
+    void zipHoldsOneEntryPerTicketInOrder() throws IOException {
+        List<Reservation> tickets = tickets();
+        Path out = dir.resolve("tickets.zip");
+        TicketExporter.export(tickets, out);
+        try (InputStream file = Files.newInputStream(out); ZipInputStream zip = new ZipInputStream(file)) {
+            for (Reservation r : tickets) {
+                ZipEntry e = zip.getNextEntry();
+                assertEquals(r.getPnr() + "_ticket.txt", e.getName());
+                // reading to the end checks the stored CRC
+                assertEquals(TicketExporter.render(r), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void textFileSeparatesTicketsWithPageBreaks() throws IOException {
+        List<Reservation> tickets = tickets();
+        Path out = dir.resolve("tickets.txt");
+        TicketExporter.export(tickets, out);
+        String[] pages = Files.readString(out).split("\f", -1);
+        assertEquals(tickets.size(), pages.length);
+        for (int i = 0; i < pages.length; i++) assertEquals(TicketExporter.render(tickets.get(i)), pages[i]);
+    }
+}
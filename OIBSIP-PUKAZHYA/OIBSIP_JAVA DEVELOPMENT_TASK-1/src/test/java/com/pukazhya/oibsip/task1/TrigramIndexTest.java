@@ -0,0 +1,34 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TrigramIndexTest.java
+ * Substring search through trigram posting lists, and the scan for short queries
+ */
+class TrigramIndexTest {
+    private static final String[] NAMES = {"Anita Raman", "Ravi Kumar", "RAMANATHAN K", "Kumaran"};
+
+    private static TrigramIndex index() {
+        TrigramIndex idx = new TrigramIndex();
+        for (int i = 0; i < NAMES.length; i++) idx.add(i, NAMES[i]);
+        return idx;
+    }
+
+    @Test
+    void findsSubstringsCaseInsensitively() {
+        TrigramIndex idx = index();
+        assertArrayEquals(new int[] {0, 2}, idx.search("raman", i -> NAMES[i]));
+        assertArrayEquals(new int[] {1, 3}, idx.search("KUMAR", i -> NAMES[i]));
+        assertArrayEquals(new int[] {}, idx.search("xyz", i -> NAMES[i]));
+    }
+
+    @Test
+    void shortQueriesStillMatch() {
+        TrigramIndex idx = index();
+        assertArrayEquals(new int[] {1}, idx.search("vi", i -> NAMES[i]));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, idx.search("a", i -> NAMES[i]));
+    }
+}
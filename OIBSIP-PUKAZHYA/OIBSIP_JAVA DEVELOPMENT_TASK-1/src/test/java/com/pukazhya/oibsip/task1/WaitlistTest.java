@@ -0,0 +1,43 @@
+package com.pukazhya.oibsip.task1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * WaitlistTest.java
+ * Queue order, positions and the per-leg-set candidates offered a freed berth
+ */
+class WaitlistTest {
+    private static final String TRAIN = "22401", CLASS = "AC 1st";
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 15);
+    private static final long FIRST = 0b001, REST = 0b110, WHOLE = 0b111;
+
+    private static List<String> pnrs(List<Waitlist.Ticket> tickets) {
+        return tickets.stream().map(t -> t.pnr).collect(Collectors.toList());
+    }
+
+    @Test
+    void candidatesAreTheFirstTicketOfEachLegSet() {
+        Waitlist w = new Waitlist();
+        w.add(TRAIN, DAY, CLASS, "W1", WHOLE);
+        for (int i = 2; i < 10_000; i++) w.add(TRAIN, DAY, CLASS, "W" + i, WHOLE);
+        w.add(TRAIN, DAY, CLASS, "R1", REST);
+        w.add(TRAIN, DAY, CLASS, "F1", FIRST);
+        w.add(TRAIN, DAY, CLASS, "F2", FIRST);
+        assertEquals(10_002, w.size(TRAIN, DAY, CLASS));
+
+        assertEquals(List.of("W1", "F1"), pnrs(w.firstPerLegs(TRAIN, DAY, CLASS, FIRST)));
+        assertEquals(List.of("W1", "R1", "F1"), pnrs(w.firstPerLegs(TRAIN, DAY, CLASS, WHOLE)));
+        assertEquals(List.of("W1", "R1"), pnrs(w.firstPerLegs(TRAIN, DAY, CLASS, 0b100)));
+
+        assertTrue(w.remove("f1"));
+        assertEquals(List.of("W1", "F2"), pnrs(w.firstPerLegs(TRAIN, DAY, CLASS, FIRST)));
+        assertEquals(10_001, w.position("F2"));
+        assertEquals(List.of(), w.firstPerLegs(TRAIN, DAY.plusDays(1), CLASS, WHOLE));
+    }
+}